@@ -0,0 +1,89 @@
+package com.logandhillon.typeofwar.engine.typing;
+
+import com.logandhillon.typeofwar.resource.WordGen;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Measures how much heap a match's sentence and typed input hold on to: as a {@link Sentence} and a
+ * {@link TypingEngine}, against the {@code String}, {@code String[]} and {@code StringBuilder[]} that a match used to
+ * hold. Run it with {@code ./gradlew footprint}.
+ * <p>
+ * Every case is measured by keeping {@link MatchFootprint#INSTANCES} of it alive at once and comparing the heap that
+ * is in use after a GC with the heap that was in use before, so the result is the retained size of one match.
+ *
+ * @author Logan Dhillon
+ */
+public final class MatchFootprint {
+    private static final int WORDS     = 10_000;
+    private static final int TYPED     = 300; // words the player has typed in each match
+    private static final int INSTANCES = 50;
+
+    private interface Match {
+        Object create(int seed) throws IOException;
+    }
+
+    public static void main(String[] args) throws IOException {
+        WordGen.getWordBank(WordGen.DEFAULT_WORD_LIST); // shared by every match, so it isn't part of one
+
+        long before = measure(seed -> {
+            String text = WordGen.generateSentence(WordGen.DEFAULT_WORD_LIST, seed, WORDS).toString();
+            String[] words = text.split(" ");
+            StringBuilder[] input = new StringBuilder[words.length];
+            Arrays.setAll(input, i -> new StringBuilder());
+            for (int i = 0; i < TYPED; i++) input[i].append(words[i]);
+            return new Object[]{ text, words, input };
+        });
+
+        long after = measure(seed -> {
+            var engine = new TypingEngine(WordGen.generateSentence(WordGen.DEFAULT_WORD_LIST, seed, WORDS));
+            type(engine);
+            return engine;
+        });
+
+        long endless = measure(seed -> {
+            var engine = new TypingEngine(WordGen.generateSentence(WordGen.DEFAULT_WORD_LIST, seed, WordGen.ENDLESS));
+            type(engine);
+            return engine;
+        });
+
+        System.out.printf("Heap held per match (%d words, %d typed):%n", WORDS, TYPED);
+        System.out.printf("  String + String[] + StringBuilder[]: %5d KiB%n", before / 1024);
+        System.out.printf("  Sentence + TypingEngine:             %5d KiB%n", after / 1024);
+        System.out.printf("  EndlessSentence + TypingEngine:      %5d KiB%n", endless / 1024);
+    }
+
+    /**
+     * Types the first words of the engine's sentence correctly.
+     */
+    private static void type(TypingEngine engine) {
+        Sentence target = engine.getTarget();
+        for (int word = 0; word < TYPED; word++) {
+            int start = target.getWordStart(word);
+            for (int j = 0; j < target.getWordLength(word); j++) engine.type(target.charAt(start + j));
+            engine.type(' ');
+        }
+    }
+
+    /**
+     * @return the average amount of bytes retained by one match
+     */
+    private static long measure(Match match) throws IOException {
+        match.create(0); // warm up, so loading classes isn't counted
+
+        long base = usedAfterGc();
+        Object[] matches = new Object[INSTANCES];
+        for (int i = 0; i < INSTANCES; i++) matches[i] = match.create(i + 1);
+        long used = usedAfterGc() - base;
+
+        if (matches[INSTANCES - 1] == null) throw new IllegalStateException(); // keep every match reachable
+        return used / INSTANCES;
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,73 @@
+package com.logandhillon.typeofwar.engine.typing;
+
+import com.logandhillon.typeofwar.resource.WordGen;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of a key press in the {@link TypingEngine}. Every invocation types the same keys into a new
+ * session: the start of a 10,000-word sentence, with a typo (and the backspace to fix it) in about one word in ten.
+ * <p>
+ * Run it with {@code -prof gc} to see the allocations: only the new session's arrays (and, for a fixed sentence, the
+ * input growing as words are reached), a few bytes per key press on average, never an object per key.
+ *
+ * @author Logan Dhillon
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TypingEngineBenchmark {
+    private static final int  SEED      = 42;
+    private static final int  KEYS      = 50_000;
+    private static final char BACKSPACE = '\b';
+
+    @Param({ "fixed", "endless" })
+    public String sentence;
+
+    private Sentence     fixed;
+    private char[]       keys;
+    private TypingEngine engine;
+
+    @Setup
+    public void setup() throws IOException {
+        fixed = WordGen.generateSentence(WordGen.DEFAULT_WORD_LIST, SEED, 10_000);
+
+        // an endless sentence with the same seed starts with the same words, so the keys fit both
+        var rand = new SplittableRandom(SEED);
+        keys = new char[KEYS];
+        int k = 0;
+        for (int word = 0; k < KEYS; word++) {
+            if (rand.nextInt(10) == 0) k = put(BACKSPACE, put('#', k));
+            for (int j = 0; j < fixed.getWordLength(word); j++) k = put(fixed.charAt(fixed.getWordStart(word) + j), k);
+            k = put(' ', k);
+        }
+    }
+
+    private int put(char c, int k) {
+        if (k < KEYS) keys[k] = c;
+        return k + 1;
+    }
+
+    @Setup(Level.Invocation)
+    public void newSession() throws IOException {
+        engine = new TypingEngine(sentence.equals("fixed")
+                                  ? fixed
+                                  : WordGen.generateSentence(WordGen.DEFAULT_WORD_LIST, SEED, WordGen.ENDLESS));
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(KEYS)
+    public int type() {
+        for (char c: keys) {
+            if (c == BACKSPACE) engine.backspace();
+            else engine.type(c);
+        }
+        return engine.getCorrectChars();
+    }
+}
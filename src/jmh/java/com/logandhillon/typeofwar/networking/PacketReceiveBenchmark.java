@@ -0,0 +1,114 @@
+package com.logandhillon.typeofwar.networking;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures what it costs to receive gameplay packets: through a {@link PacketReader} and its pooled buffer, against
+ * reading every frame into a new array and copying the payload out of it (as the server and client did before).
+ * <p>
+ * Run it with JMH's GC profiler to see the allocations: {@code ./gradlew jmh -Pjmh='PacketReceive -prof gc'}. The
+ * {@code gc.alloc.rate.norm} of {@code pooled} should be (close to) zero bytes per packet.
+ *
+ * @author Logan Dhillon
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PacketReceiveBenchmark {
+    private static final int               FRAMES = 64; // per read, half key presses and half rope snapshots
+    private static final GamePacket.Type[] TYPES  = GamePacket.Type.values();
+
+    private PacketReader       reader;
+    private PacketView.Handler handler;
+    private ReplayChannel      channel;
+    private DataInputStream    stream;
+
+    private long sum; // what was read from the packets, so it can't be optimized away
+
+    @Setup
+    public void setup() {
+        ByteBuffer frames = ByteBuffer.allocate(FRAMES * (PacketFrame.HEADER_LENGTH + 32));
+        for (int i = 0; i < FRAMES; i++) {
+            GamePacket.Type type = i % 2 == 0 ? GamePacket.Type.CLT_KEY_PRESS : GamePacket.Type.SRV_ROPE_SNAPSHOT;
+            byte[] payload = new byte[type == GamePacket.Type.CLT_KEY_PRESS ? 9 : 32];
+            ByteBuffer.wrap(payload).putLong(i);
+            frames.put(new GamePacket(type, payload).encode().buffer());
+        }
+        frames.flip();
+
+        reader = new PacketReader(new BufferPool());
+        handler = packet -> sum += packet.getLong(0);
+        channel = new ReplayChannel(frames);
+        stream = new DataInputStream(new ByteArrayInputStream(Arrays.copyOf(frames.array(), frames.limit())));
+    }
+
+    @TearDown
+    public void tearDown() {
+        reader.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public long pooled() throws IOException {
+        channel.replay();
+        reader.read(channel, handler);
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(FRAMES)
+    public long copying() throws IOException {
+        stream.reset();
+        for (int i = 0; i < FRAMES; i++) {
+            int length = stream.readInt();
+            byte[] data = new byte[length];
+            stream.readFully(data);
+
+            var packet = new GamePacket(TYPES[data[0]], Arrays.copyOfRange(data, 1, length));
+            sum += ByteBuffer.wrap(packet.payload()).getLong(0);
+        }
+        return sum;
+    }
+
+    /**
+     * A channel that has the same frames available again every time it is replayed, without allocating.
+     */
+    private static final class ReplayChannel implements ReadableByteChannel {
+        private final ByteBuffer frames;
+
+        private ReplayChannel(ByteBuffer frames) {
+            this.frames = frames;
+        }
+
+        private void replay() {
+            frames.rewind();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            int n = Math.min(frames.remaining(), dst.remaining());
+            dst.put(dst.position(), frames, frames.position(), n).position(dst.position() + n);
+            frames.position(frames.position() + n);
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {}
+    }
+}
@@ -0,0 +1,226 @@
+package com.logandhillon.typeofwar.networking;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loopback benchmark of the server's transport: the selector loop that {@link GameServer} runs over its
+ * {@link ClientConnection}s, against the thread-per-client server with blocking streams that it replaced.
+ * <p>
+ * Both servers echo every packet back to the client that sent it. Each operation, every client sends one
+ * {@code CLT_PONG}-sized frame, then reads its echo, so the score is the time it takes the server to serve one packet
+ * for each of its clients.
+ *
+ * @author Logan Dhillon
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ServerTransportBenchmark {
+    private static final int PAYLOAD_LENGTH = 24;
+
+    @Param({ "selector", "blocking" })
+    public String transport;
+
+    @Param({ "8", "64", "256" })
+    public int clients;
+
+    private EchoServer      server;
+    private SocketChannel[] channels;
+    private ByteBuffer      request;
+    private ByteBuffer      response;
+
+    @Setup
+    public void setup() throws IOException {
+        server = transport.equals("selector") ? new SelectorEchoServer() : new BlockingEchoServer();
+
+        channels = new SocketChannel[clients];
+        for (int i = 0; i < clients; i++) {
+            channels[i] = SocketChannel.open(server.address());
+            channels[i].setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+
+        request = ByteBuffer.allocateDirect(PacketFrame.HEADER_LENGTH + PAYLOAD_LENGTH);
+        request.putInt(1 + PAYLOAD_LENGTH).put((byte)GamePacket.Type.CLT_PONG.ordinal());
+        request.position(0);
+        response = ByteBuffer.allocateDirect(request.capacity());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        for (SocketChannel channel: channels) channel.close();
+        server.close();
+    }
+
+    @Benchmark
+    public void roundTrip() throws IOException {
+        for (SocketChannel channel: channels) {
+            request.rewind();
+            while (request.hasRemaining()) channel.write(request);
+        }
+        for (SocketChannel channel: channels) {
+            response.clear();
+            while (response.hasRemaining()) {
+                if (channel.read(response) < 0) throw new EOFException("server closed the connection");
+            }
+        }
+    }
+
+    private interface EchoServer extends Closeable {
+        InetSocketAddress address();
+    }
+
+    /**
+     * The same selector loop as {@link GameServer#run()}, minus the game.
+     */
+    private static final class SelectorEchoServer implements EchoServer, Runnable {
+        private final Selector            selector = Selector.open();
+        private final ServerSocketChannel socket   = ServerSocketChannel.open();
+        private final Thread              thread   = new Thread(this, "SelectorEchoServer");
+
+        private volatile boolean running = true;
+
+        private SelectorEchoServer() throws IOException {
+            socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+            socket.configureBlocking(false);
+            socket.register(selector, SelectionKey.OP_ACCEPT);
+            thread.start();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+
+                        if (!key.isValid()) continue;
+                        if (key.isAcceptable()) {
+                            accept();
+                            continue;
+                        }
+
+                        ClientConnection client = (ClientConnection)key.attachment();
+                        try {
+                            if (key.isReadable() && !client.read()) {
+                                client.close();
+                                continue;
+                            }
+                            if (key.isValid() && key.isWritable()) client.flush();
+                        } catch (IOException e) {
+                            client.close();
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        private void accept() throws IOException {
+            SocketChannel channel = socket.accept();
+            if (channel == null) return;
+
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+            key.attach(new ClientConnection(channel, key, (client, packet) -> client.send(packet.copy()),
+                                            GameServer.DEFAULT_QUEUE_CAPACITY,
+                                            OutboundQueue.OverflowPolicy.DROP_OLDEST));
+        }
+
+        @Override
+        public InetSocketAddress address() {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), socket.socket().getLocalPort());
+        }
+
+        @Override
+        public void close() throws IOException {
+            running = false;
+            selector.wakeup();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            for (SelectionKey key: selector.keys()) {
+                if (key.attachment() instanceof ClientConnection client) client.close();
+            }
+            socket.close();
+            selector.close();
+        }
+    }
+
+    /**
+     * One thread per client, each blocking on {@link DataInputStream#readInt()}, as the server did before it had a
+     * selector loop.
+     */
+    private static final class BlockingEchoServer implements EchoServer, Runnable {
+        private final ServerSocket socket = new ServerSocket(0, 1024, InetAddress.getLoopbackAddress());
+
+        private BlockingEchoServer() throws IOException {
+            new Thread(this, "ServerAcceptor").start();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!socket.isClosed()) {
+                    Socket client = socket.accept();
+                    client.setTcpNoDelay(true);
+                    new Thread(() -> handle(client), "ClientHandler-" + client.getPort()).start();
+                }
+            } catch (IOException ignored) {
+                // the server socket was closed
+            }
+        }
+
+        private static void handle(Socket client) {
+            try (client;
+                 DataInputStream in = new DataInputStream(client.getInputStream());
+                 OutputStream out = client.getOutputStream()) {
+                while (true) {
+                    int length = in.readInt();
+                    byte[] data = new byte[4 + length];
+                    in.readFully(data, 4, length);
+                    ByteBuffer.wrap(data).putInt(length);
+                    out.write(data);
+                    out.flush();
+                }
+            } catch (IOException ignored) {
+                // the client disconnected
+            }
+        }
+
+        @Override
+        public InetSocketAddress address() {
+            return new InetSocketAddress(InetAddress.getLoopbackAddress(), socket.getLocalPort());
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close(); // client threads end once their benchmark client disconnects
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.logandhillon.typeofwar.resource;
+
+import com.logandhillon.typeofwar.engine.typing.Sentence;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures generating a match's sentence: from the cached {@link WordBank}, against parsing the word list again and
+ * building the sentence in a {@link StringBuilder} (as {@link WordGen} did before it had word banks).
+ *
+ * @author Logan Dhillon
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class WordGenBenchmark {
+    @Param({ "10000" })
+    public int length;
+
+    private long seed;
+
+    @Setup
+    public void setup() throws IOException {
+        WordGen.getWordBank(WordGen.DEFAULT_WORD_LIST); // loaded once per game, not per sentence
+    }
+
+    @Benchmark
+    public Sentence wordBank() throws IOException {
+        return WordGen.generateSentence(WordGen.DEFAULT_WORD_LIST, seed++, length);
+    }
+
+    @Benchmark
+    public String reparsing() throws IOException {
+        try (InputStream file = WordGen.class.getResourceAsStream("/words/english.txt")) {
+            if (file == null) throw new FileNotFoundException("File not found: /words/english.txt");
+
+            List<String> words = new BufferedReader(new InputStreamReader(file)).lines().toList();
+            Random rand = new Random();
+            StringBuilder sentence = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                sentence.append(words.get(rand.nextInt(words.size())));
+                if (i < length - 1) sentence.append(" ");
+            }
+            return sentence.toString();
+        }
+    }
+}
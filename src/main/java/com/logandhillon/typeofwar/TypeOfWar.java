@@ -2,7 +2,9 @@ package com.logandhillon.typeofwar;
 
 import com.logandhillon.typeofwar.engine.GameEngine;
 import com.logandhillon.typeofwar.engine.GameScene;
+import com.logandhillon.typeofwar.engine.RopeModel;
 import com.logandhillon.typeofwar.engine.disk.UserConfigManager;
+import com.logandhillon.typeofwar.engine.typing.Sentence;
 import com.logandhillon.typeofwar.entity.EndResultEntity;
 import com.logandhillon.typeofwar.entity.GameStatisticsEntity;
 import com.logandhillon.typeofwar.entity.PlayerObject;
@@ -28,6 +30,7 @@ import org.apache.logging.log4j.core.LoggerContext;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.util.List;
+import java.util.Random;
 
 /**
  * This is the main entrypoint for Type of War, handling low-level game engine code and GameScene management.
@@ -162,36 +165,56 @@ public class TypeOfWar extends Application {
      *
      * @param sentence   the custom sentence, this is ignored server-side
      * @param multiplier the base multiplier, this is ignored server-side
+     * @param goTime     when the countdown ends and typing starts, on this machine's {@link System#nanoTime()}; this is
+     *                   ignored server-side
      *
      * @throws IllegalStateException if there is no active server or client
      */
-    public void startGame(String sentence, float multiplier) {
+    public void startGame(Sentence sentence, float multiplier, long goTime) {
         List<PlayerObject> t1;
         List<PlayerObject> t2;
+        RopeModel rope;
 
         if (server != null) {
-            t1 = server.getTeam(1)
+            t1 = server.getTeam(1).stream()
                        .map(p -> new PlayerObject(p.getName(), Color.color(p.getR(), p.getG(), p.getB())))
                        .toList();
-            t2 = server.getTeam(2)
+            t2 = server.getTeam(2).stream()
                        .map(p -> new PlayerObject(p.getName(), Color.color(p.getR(), p.getG(), p.getB())))
                        .toList();
 
-            try {
-                sentence = customSentence.isBlank() ? WordGen.generateSentence(10000) : customSentence;
-            } catch (IOException e) {
-                LOG.fatal("Could not generate sentence", e);
-            }
             multiplier = baseMultiplier;
+            goTime = System.nanoTime() + GameServer.START_DELAY; // every client moves it onto its own clock
+            var gameData = GameInitProto.GameData.newBuilder().setMultiplier(multiplier).setGoTime(goTime);
+
+            if (customSentence.isBlank()) {
+                // only send what's needed to generate the sentence, every client generates the same one locally
+                var generated = GameInitProto.GeneratedSentence.newBuilder()
+                                                               .setWordList(WordGen.DEFAULT_WORD_LIST)
+                                                               .setSeed(new Random().nextLong())
+                                                               .setLength(WordGen.ENDLESS)
+                                                               .build();
+                try {
+                    sentence = WordGen.generateSentence(
+                            generated.getWordList(), generated.getSeed(), generated.getLength());
+                } catch (IOException e) {
+                    LOG.fatal("Could not generate sentence", e);
+                }
+                gameData.setGenerated(generated);
+            } else {
+                sentence = Sentence.of(customSentence);
+                gameData.setSentence(customSentence);
+            }
 
-            server.broadcast(new GamePacket(
-                    GamePacket.Type.SRV_GAME_STARTING,
-                    GameInitProto.GameData.newBuilder().setSentence(sentence).setMultiplier(multiplier).build()));
+            server.broadcast(GamePacket.Type.SRV_GAME_STARTING, gameData.build());
+            rope = server.newRope(multiplier);
         } else if (client != null) {
             t1 = client.getTeam(1).stream().map(
                     p -> new PlayerObject(p.getName(), Color.color(p.getR(), p.getG(), p.getB()))).toList();
             t2 = client.getTeam(2).stream().map(
                     p -> new PlayerObject(p.getName(), Color.color(p.getR(), p.getG(), p.getB()))).toList();
+            rope = new RopeModel(multiplier, client.getPlayerTeam(), client.resetKeyPresses(),
+                                 GameClient.SNAPSHOT_DELAY); // synced to the server
         } else {
             throw new IllegalStateException("You cannot start the game without an active server or client!");
         }
@@ -199,32 +222,38 @@ public class TypeOfWar extends Application {
         isGameEndSignalled = false;
         isInMenu = false;
 
-        String finalSentence = sentence;
-        float finalMultiplier = multiplier;
-        Platform.runLater(() -> setScene(new TypeOfWarScene(this, t1, t2, finalSentence, finalMultiplier)));
+        Sentence finalSentence = sentence;
+        long finalGoTime = goTime;
+        Platform.runLater(() -> setScene(new TypeOfWarScene(this, t1, t2, finalSentence, rope, finalGoTime)));
     }
 
     /**
      * Handles a correct key press
      *
-     * @return true if this is the server (and the rope should be moved)
+     * @param sequence the sequence number of the key press, from the client's {@link RopeModel#predict()}; this is
+     *                 ignored server-side
      *
      * @throws IllegalStateException if there is no active server or client
      */
-    public boolean sendCorrectKeyPress() {
+    public void sendCorrectKeyPress(long sequence) {
         if (server != null) {
-            // tell everyone a key was pressed
-            server.broadcast(new GamePacket(GamePacket.Type.SRV_KEY_PRESS, new byte[]{ 1 }));
-            return true;
+            // count it on the server's rope, everyone gets the new totals on the next server tick
+            server.recordKeyPress(1);
         } else if (client != null) {
-            // tell the server a key was pressed (the server will broadcast it to everyone else)
-            client.sendServer(new GamePacket(GamePacket.Type.CLT_KEY_PRESS));
-            return false;
+            // count it for the server, it is sent along with any other presses this frame
+            client.recordKeyPress(sequence);
         } else {
             throw new IllegalStateException("You cannot run onCorrectKeyPressed without an active server or client!");
         }
     }
 
+    /**
+     * Sends the key presses a client counted since the last time to the server, once per frame.
+     */
+    public void flushKeyPresses() {
+        if (client != null) client.flushKeyPresses();
+    }
+
     public void showJoinGameMenu() {
         discoverer = new ServerDiscoverer(this);
         discoverer.start();
@@ -0,0 +1,60 @@
+package com.logandhillon.typeofwar.engine;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A command queue hands changes from any thread (i.e. the network threads) to a single consumer thread (the game loop),
+ * which runs them all at once. Producers never lock or block: posting a command is one atomic swap.
+ * <p>
+ * The queue is a linked list that producers append to at the tail and the consumer takes from at the head. A command
+ * that is being posted while the queue is drained may only run on the next drain, never out of order within a thread.
+ *
+ * @author Logan Dhillon
+ * @see GameScene#post(Runnable)
+ */
+public final class CommandQueue {
+    private final AtomicReference<Node> tail;
+    private       Node                  head; // only touched by the consumer; the last command that was run
+
+    private static final class Node {
+        private          Runnable command;
+        private volatile Node     next;
+
+        private Node(Runnable command) {
+            this.command = command;
+        }
+    }
+
+    public CommandQueue() {
+        head = new Node(null);
+        tail = new AtomicReference<>(head);
+    }
+
+    /**
+     * Queues a command. Safe to call from any thread.
+     *
+     * @param command the command to run on the consumer thread
+     */
+    public void post(Runnable command) {
+        Node node = new Node(command);
+        tail.getAndSet(node).next = node; // link it after whichever node was the tail before
+    }
+
+    /**
+     * Runs every command that has been posted so far, in order. Must only be called from the consumer thread.
+     *
+     * @return the amount of commands that were run
+     */
+    public int drain() {
+        int count = 0;
+        for (Node next = head.next; next != null; next = head.next) {
+            Runnable command = next.command;
+            next.command = null; // the node stays around as the new head, the command doesn't have to
+            head = next;
+
+            command.run();
+            count++;
+        }
+        return count;
+    }
+}
@@ -36,6 +36,7 @@ public abstract class GameScene {
 
     private final ArrayList<Entity>   entities = new ArrayList<>();
     private final List<HandlerRef<?>> handlers = new ArrayList<>();
+    private final CommandQueue        commands = new CommandQueue();
 
     private AnimationTimer lifecycle;
 
@@ -89,6 +90,7 @@ public abstract class GameScene {
                 float dt = (now - lastTime[0]) / 1_000_000_000f; // nanoseconds to seconds
                 lastTime[0] = now;
 
+                commands.drain(); // apply changes from other threads before anything reads the scene this tick
                 onUpdate(dt);
                 render(g);
             }
@@ -181,6 +183,15 @@ public abstract class GameScene {
         e.onAttach(this);
     }
 
+    /**
+     * Removes a single entity from the scene and discards it (triggering {@link Entity#onDestroy()}).
+     *
+     * @param e the entity to remove.
+     */
+    public void removeEntity(Entity e) {
+        if (entities.remove(e)) e.onDestroy();
+    }
+
     /**
      * Removes all entities from this modal that match the predicate
      *
@@ -200,6 +211,17 @@ public abstract class GameScene {
         LOG.info("Successfully removed {} entities from this modal", removed);
     }
 
+    /**
+     * Queues a change to this scene from any thread (i.e. a network thread). Every queued change is run on the game
+     * loop at the start of the next tick, before {@link GameScene#onUpdate(float)}, so the scene and its entities are
+     * only ever touched by the game loop.
+     *
+     * @param command the change to run on the game loop
+     */
+    public void post(Runnable command) {
+        commands.post(command);
+    }
+
     /**
      * Registers an event handler that will be attached to the scene when it is built.
      *
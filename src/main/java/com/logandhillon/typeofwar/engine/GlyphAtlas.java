@@ -0,0 +1,203 @@
+package com.logandhillon.typeofwar.engine;
+
+import javafx.geometry.VPos;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.text.Font;
+import javafx.scene.text.Text;
+import javafx.scene.text.TextAlignment;
+
+/**
+ * A glyph atlas is a monospaced font that has been rasterized ahead of time: every printable ASCII character, in every
+ * color it will be drawn in, is rendered once into a single image. Drawing text is then only copying small rectangles
+ * out of that image with {@link GraphicsContext#drawImage}, so no strings are created and no text is laid out or
+ * rasterized while rendering.
+ * <p>
+ * Colors are referred to by their index in the constructor. The atlas is rasterized the first time it is used, which
+ * must be on the FX thread (i.e. while rendering). Characters that aren't in the atlas fall back to
+ * {@link GraphicsContext#fillText}.
+ *
+ * @author Logan Dhillon
+ */
+public final class GlyphAtlas {
+    private static final char FIRST   = ' ';
+    private static final char LAST    = '~';
+    private static final int  GLYPHS  = LAST - FIRST + 1;
+    private static final int  COLUMNS = 16; // glyphs are laid out in a grid, so big fonts don't make a huge image
+    private static final int  ROWS    = (GLYPHS + COLUMNS - 1) / COLUMNS;
+    private static final int  PADDING = 2; // room for antialiasing that bleeds past a glyph's advance
+
+    private final Font    font;
+    private final Color[] colors;
+
+    private WritableImage image; // null until rasterized
+    private double        advance;
+    private double        ascent;
+    private double        descent;
+    private int           cellWidth;
+    private int           cellHeight;
+    private int           baseline; // of a glyph within its cell, whole pixels so blits at whole pixels stay sharp
+
+    /**
+     * Creates an atlas, which is rasterized the first time it is used.
+     *
+     * @param font   the font to rasterize, must be monospaced
+     * @param colors every color the text will be drawn in
+     */
+    public GlyphAtlas(Font font, Color... colors) {
+        if (colors.length == 0) throw new IllegalArgumentException("A glyph atlas needs at least one color");
+        this.font = font;
+        this.colors = colors.clone();
+    }
+
+    /**
+     * Renders every glyph in every color to an offscreen canvas and snapshots it into the atlas image.
+     */
+    private void rasterize() {
+        Text probe = new Text("M");
+        probe.setFont(font);
+        advance = probe.getLayoutBounds().getWidth();
+        ascent = probe.getBaselineOffset();
+        descent = probe.getLayoutBounds().getHeight() - ascent;
+
+        cellWidth = (int)Math.ceil(advance) + 2 * PADDING;
+        baseline = PADDING + (int)Math.ceil(ascent);
+        cellHeight = baseline + (int)Math.ceil(descent) + PADDING;
+
+        Canvas canvas = new Canvas(cellWidth * COLUMNS, cellHeight * ROWS * colors.length);
+        GraphicsContext g = canvas.getGraphicsContext2D();
+        g.setFont(font);
+        g.setTextAlign(TextAlignment.LEFT);
+        g.setTextBaseline(VPos.BASELINE);
+
+        // one block of rows per color, one cell per glyph
+        for (int color = 0; color < colors.length; color++) {
+            g.setFill(colors[color]);
+            for (int i = 0; i < GLYPHS; i++) {
+                g.fillText(String.valueOf((char)(FIRST + i)), cellX(i) + PADDING, cellY(i, color) + baseline);
+            }
+        }
+
+        SnapshotParameters params = new SnapshotParameters();
+        params.setFill(Color.TRANSPARENT);
+        image = canvas.snapshot(params, null);
+    }
+
+    /**
+     * Draws a single character.
+     *
+     * @param g     the graphical context to draw to
+     * @param c     the character to draw
+     * @param color the index of the color to draw it in
+     * @param x     the left edge of the character
+     * @param y     the baseline of the character
+     */
+    public void drawChar(GraphicsContext g, char c, int color, double x, double y) {
+        if (image == null) rasterize();
+
+        if (c < FIRST || c > LAST) {
+            drawFallback(g, c, color, x, y);
+            return;
+        }
+        if (c == ' ') return; // nothing to draw
+
+        int i = c - FIRST;
+        g.drawImage(image, cellX(i), cellY(i, color), cellWidth, cellHeight,
+                    x - PADDING, y - baseline, cellWidth, cellHeight);
+    }
+
+    private int cellX(int glyph) {
+        return (glyph % COLUMNS) * cellWidth;
+    }
+
+    private int cellY(int glyph, int color) {
+        return (color * ROWS + glyph / COLUMNS) * cellHeight;
+    }
+
+    /**
+     * Draws a range of characters, left-aligned, each one a fixed distance apart.
+     *
+     * @param g       the graphical context to draw to
+     * @param text    the text to draw from
+     * @param start   the index of the first character to draw
+     * @param end     the index after the last character to draw
+     * @param color   the index of the color to draw it in
+     * @param x       the left edge of the first character
+     * @param y       the baseline of the text
+     * @param advance the distance between the left edges of two characters, i.e. {@link GlyphAtlas#getAdvance()}
+     *
+     * @return the x position after the last character
+     */
+    public double drawText(GraphicsContext g, CharSequence text, int start, int end, int color, double x, double y,
+                           double advance) {
+        for (int i = start; i < end; i++, x += advance) drawChar(g, text.charAt(i), color, x, y);
+        return x;
+    }
+
+    /**
+     * Draws text with the font's own character spacing.
+     *
+     * @param g     the graphical context to draw to
+     * @param text  the text to draw
+     * @param color the index of the color to draw it in
+     * @param x     the x position of the text, relative to the alignment
+     * @param y     the baseline of the text
+     * @param align which part of the text x refers to
+     */
+    public void drawText(GraphicsContext g, CharSequence text, int color, double x, double y, TextAlignment align) {
+        double width = measure(text);
+        if (align == TextAlignment.CENTER) x -= width / 2;
+        else if (align == TextAlignment.RIGHT) x -= width;
+
+        drawText(g, text, 0, text.length(), color, x, y, advance);
+    }
+
+    /**
+     * Draws a character that isn't in the atlas the slow way, without changing the graphical context's state.
+     */
+    private void drawFallback(GraphicsContext g, char c, int color, double x, double y) {
+        g.save();
+        g.setFont(font);
+        g.setFill(colors[color]);
+        g.setTextAlign(TextAlignment.LEFT);
+        g.setTextBaseline(VPos.BASELINE);
+        g.fillText(String.valueOf(c), x, y);
+        g.restore();
+    }
+
+    /**
+     * @param text the text to measure
+     *
+     * @return the width of the text when drawn with the font's own character spacing
+     */
+    public double measure(CharSequence text) {
+        return text.length() * getAdvance();
+    }
+
+    /**
+     * @return the width of a single character
+     */
+    public double getAdvance() {
+        if (image == null) rasterize();
+        return advance;
+    }
+
+    /**
+     * @return the distance from the top of a line of text to its baseline
+     */
+    public double getAscent() {
+        if (image == null) rasterize();
+        return ascent;
+    }
+
+    /**
+     * @return the distance from the baseline of a line of text to its bottom
+     */
+    public double getDescent() {
+        if (image == null) rasterize();
+        return descent;
+    }
+}
@@ -0,0 +1,146 @@
+package com.logandhillon.typeofwar.engine;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The rope model is the state of a match's rope: the total amount of correct key presses of each team since the match
+ * started. Where the rope is is derived from those two totals and the multiplier every time it is read, so it can't
+ * drift, and two models with the same totals always put the rope in exactly the same place.
+ * <p>
+ * The server owns the real model and counts presses with {@link LongAdder}s, so any thread can count them without
+ * locking. Clients don't count presses themselves; they {@link RopeModel#sync(long, long, long, long, long)} to the
+ * server's snapshots of its totals, and show them through a {@link SnapshotBuffer}, a short while behind the server.
+ * <p>
+ * A client's own presses are predicted, so the rope moves as soon as the player presses a key instead of a round trip
+ * later. Each of them has a sequence number, and the server acks the last one its totals include; presses that haven't
+ * been acked yet are added on top of the server's totals. Once they are acked, the totals include them, so they stop
+ * being added: the prediction reconciles with the server's state on its own, and can never drift from it. The acks are
+ * interpolated along with the totals, so a press doesn't stop being predicted before the shown totals include it.
+ *
+ * @author Logan Dhillon
+ * @see com.logandhillon.typeofwar.entity.RopeEntity
+ */
+public final class RopeModel {
+    private final LongAdder team1 = new LongAdder();
+    private final LongAdder team2 = new LongAdder();
+    private final float     multiplier;
+
+    // prediction of this client's own presses, only touched by the game loop
+    private final int  localTeam; // 0 if presses aren't predicted (i.e. on the server)
+    private       long predicted; // sequence number of this client's last press
+    private       long acked; // sequence number of the last press the server's totals include
+
+    private final SnapshotBuffer snapshots; // null if nothing is interpolated (i.e. on the server)
+
+    /**
+     * Creates a model that doesn't predict anything, i.e. the server's.
+     *
+     * @param multiplier how far a single press moves the rope, relative to the base distance
+     */
+    public RopeModel(float multiplier) {
+        this.multiplier = multiplier;
+        this.localTeam = 0;
+        this.snapshots = null;
+    }
+
+    /**
+     * Creates a client's model, which predicts the client's own presses.
+     *
+     * @param multiplier how far a single press moves the rope, relative to the base distance
+     * @param localTeam  the team of this client's player (1 or 2)
+     * @param sequence   the sequence number of the last press this client sent before this match
+     * @param delay      how far behind the server to show the rope (in nanoseconds), see {@link SnapshotBuffer}
+     */
+    public RopeModel(float multiplier, int localTeam, long sequence, long delay) {
+        this.multiplier = multiplier;
+        this.localTeam = localTeam;
+        this.predicted = sequence;
+        this.acked = sequence;
+        this.snapshots = new SnapshotBuffer(delay);
+    }
+
+    /**
+     * Counts correct key presses. This is safe to call from any thread.
+     *
+     * @param team    the team of the player who pressed the keys (1 or 2)
+     * @param presses the amount of presses
+     */
+    public void press(int team, long presses) {
+        if (presses > 0) (team == 1 ? team1 : team2).add(presses);
+    }
+
+    /**
+     * Predicts a press of this client's own player, which shows until the server acks it. Must only be called by the
+     * game loop.
+     *
+     * @return the sequence number of the press, to send to the server
+     */
+    public long predict() {
+        return ++predicted;
+    }
+
+    /**
+     * Catches this model up to a snapshot of the server's totals. Totals only ever go up, so totals that are older than
+     * what this model already has (i.e. a packet that arrived late) change nothing. Must only be called by the game
+     * loop, on a client's model.
+     *
+     * @param serverTime when the server took the snapshot, on its clock (in nanoseconds)
+     * @param team1Total the total correct key presses of team 1
+     * @param team2Total the total correct key presses of team 2
+     * @param ack        the sequence number of this client's last press that the totals include
+     * @param arrival    when the snapshot arrived, on this machine's {@link System#nanoTime()}
+     */
+    public void sync(long serverTime, long team1Total, long team2Total, long ack, long arrival) {
+        catchUp(team1, team1Total);
+        catchUp(team2, team2Total);
+        acked = Math.min(Math.max(acked, ack), predicted);
+        snapshots.add(serverTime, team1Total, team2Total, Math.min(ack, predicted), arrival);
+    }
+
+    private static void catchUp(LongAdder presses, long total) {
+        long missing = total - presses.sum();
+        if (missing > 0) presses.add(missing);
+    }
+
+    /**
+     * @param team the team (1 or 2)
+     *
+     * @return the total correct key presses of that team
+     */
+    public long getPresses(int team) {
+        return (team == 1 ? team1 : team2).sum();
+    }
+
+    /**
+     * @return how many presses the rope has been pulled towards team 2 (negative if towards team 1), times the
+     * multiplier
+     */
+    public double getOffset() {
+        long pending = localTeam == 0 ? 0 : predicted - acked; // this client's presses the server hasn't counted yet
+        long team1 = this.team1.sum() + (localTeam == 1 ? pending : 0);
+        long team2 = this.team2.sum() + (localTeam == 2 ? pending : 0);
+        return (double)(team2 - team1) * multiplier;
+    }
+
+    /**
+     * Gets the offset to show now. On a client, this is interpolated between the server's snapshots from a short while
+     * ago, plus the presses that are still predicted at that point; otherwise it is the same as {@link #getOffset()}.
+     *
+     * @param now the current {@link System#nanoTime()}
+     *
+     * @return how many presses the rope has been pulled towards team 2 (negative if towards team 1), times the
+     * multiplier
+     */
+    public double getOffset(long now) {
+        if (snapshots == null || !snapshots.sample(now)) return getOffset();
+
+        double pending = localTeam == 0 ? 0 : predicted - snapshots.getAck();
+        double team1 = snapshots.getTeam1() + (localTeam == 1 ? pending : 0);
+        double team2 = snapshots.getTeam2() + (localTeam == 2 ? pending : 0);
+        return (team2 - team1) * multiplier;
+    }
+
+    public float getMultiplier() {
+        return multiplier;
+    }
+}
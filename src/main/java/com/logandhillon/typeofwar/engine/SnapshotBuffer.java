@@ -0,0 +1,122 @@
+package com.logandhillon.typeofwar.engine;
+
+/**
+ * A snapshot buffer is a client's jitter buffer of the server's rope snapshots. Snapshots are sent at a fixed rate, but
+ * arrive whenever the network gets them there; instead of showing each one the moment it arrives, the buffer holds
+ * them for a short delay and plays them back at the rate they were taken, interpolating between the two around the
+ * time being shown. The rope then moves smoothly at the display's refresh rate, no matter how uneven the packets are.
+ * <p>
+ * Snapshots are timestamped with the server's clock. The buffer maps them onto this machine's clock using the snapshot
+ * that got here the fastest, so a snapshot that is slower than that by less than the delay still arrives in time.
+ * <p>
+ * This is only touched by the game loop, and never allocates after it is created.
+ *
+ * @author Logan Dhillon
+ * @see RopeModel
+ */
+public final class SnapshotBuffer {
+    private static final int SIZE = 16; // a power of two, enough for well over the delay
+    private static final int MASK = SIZE - 1;
+
+    private final long delay;
+
+    // snapshots by their index & MASK
+    private final long[] time  = new long[SIZE];
+    private final long[] team1 = new long[SIZE];
+    private final long[] team2 = new long[SIZE];
+    private final long[] ack   = new long[SIZE];
+
+    private int  count; // index after the newest snapshot
+    private long clockOffset = Long.MAX_VALUE; // smallest local arrival time minus server time seen
+
+    // the last sample
+    private double sampleTeam1;
+    private double sampleTeam2;
+    private double sampleAck;
+
+    /**
+     * @param delay how long to hold snapshots for before they are shown (in nanoseconds); the more jitter this covers,
+     *              the further behind the server the rope is shown
+     */
+    public SnapshotBuffer(long delay) {
+        this.delay = delay;
+    }
+
+    /**
+     * Adds a snapshot that arrived from the server. Snapshots that are older than the newest one are dropped.
+     *
+     * @param serverTime when the server took the snapshot, on its clock (in nanoseconds)
+     * @param team1      the total correct key presses of team 1
+     * @param team2      the total correct key presses of team 2
+     * @param ack        the sequence number of this client's last press that the totals include
+     * @param arrival    when the snapshot arrived, on this machine's {@link System#nanoTime()}
+     */
+    public void add(long serverTime, long team1, long team2, long ack, long arrival) {
+        if (count > 0 && serverTime <= time[(count - 1) & MASK]) return;
+
+        int i = count++ & MASK;
+        time[i] = serverTime;
+        this.team1[i] = team1;
+        this.team2[i] = team2;
+        this.ack[i] = ack;
+
+        clockOffset = Math.min(clockOffset, arrival - serverTime);
+    }
+
+    /**
+     * Samples the snapshots at the time that is shown now, i.e. the delay before now on the server's clock. Before the
+     * oldest held snapshot and after the newest one, they are held instead of extrapolated.
+     *
+     * @param now the current {@link System#nanoTime()}
+     *
+     * @return false if there are no snapshots to sample yet
+     */
+    public boolean sample(long now) {
+        if (count == 0) return false;
+
+        long shown = now - clockOffset - delay;
+        int newest = count - 1;
+        int oldest = Math.max(0, count - SIZE);
+
+        // find the newest snapshot at or before the shown time, scanning back from the newest
+        int a = newest;
+        while (a > oldest && time[a & MASK] > shown) a--;
+
+        if (a == newest || time[a & MASK] > shown) {
+            set(a, a, 0);
+        } else {
+            long from = time[a & MASK];
+            set(a, a + 1, (double)(shown - from) / (time[(a + 1) & MASK] - from));
+        }
+        return true;
+    }
+
+    private void set(int a, int b, double t) {
+        a &= MASK;
+        b &= MASK;
+        sampleTeam1 = team1[a] + (team1[b] - team1[a]) * t;
+        sampleTeam2 = team2[a] + (team2[b] - team2[a]) * t;
+        sampleAck = ack[a] + (ack[b] - ack[a]) * t;
+    }
+
+    /**
+     * @return the total correct key presses of team 1 in the last sample
+     */
+    public double getTeam1() {
+        return sampleTeam1;
+    }
+
+    /**
+     * @return the total correct key presses of team 2 in the last sample
+     */
+    public double getTeam2() {
+        return sampleTeam2;
+    }
+
+    /**
+     * @return the sequence number of this client's last press that the last sample includes
+     */
+    public double getAck() {
+        return sampleAck;
+    }
+}
@@ -0,0 +1,112 @@
+package com.logandhillon.typeofwar.engine.typing;
+
+import com.logandhillon.typeofwar.resource.WordBank;
+
+import java.util.SplittableRandom;
+
+/**
+ * An endless sentence never runs out of words: they are picked from a word bank as the player gets close to them, into
+ * ring buffers of a fixed size, and words that are far enough behind the player are overwritten. Its memory use is set
+ * when it is created, no matter how long it is typed for.
+ * <p>
+ * Words are picked the same way as {@link com.logandhillon.typeofwar.resource.WordGen#generateSentence} does, so the
+ * same word bank and seed always give the same stream of words (and the first words of an endless sentence are the
+ * same as those of a fixed one with that seed).
+ *
+ * @author Logan Dhillon
+ */
+public final class EndlessSentence extends Sentence {
+    /** how many words are held after the furthest word the player has reached */
+    public static final int AHEAD  = 256;
+    /** how many words are held before the furthest word the player has reached, i.e. to backspace into */
+    public static final int BEHIND = 256;
+
+    private static final int WORD_WINDOW = 1024; // a power of two, more than BEHIND + 1 + AHEAD
+    private static final int WORD_MASK   = WORD_WINDOW - 1;
+
+    private final WordBank         words;
+    private final SplittableRandom rand;
+
+    private final char[] chars; // by character index & charMask
+    private final int    charMask;
+    private final int[]  wordStart  = new int[WORD_WINDOW]; // by word index & WORD_MASK
+    private final int[]  wordLength = new int[WORD_WINDOW];
+
+    private int firstWord; // oldest word that is held
+    private int endWord; // index after the newest word that is held
+    private int endChar; // index after the space after the newest word
+
+    /**
+     * Creates an endless sentence, and generates the first words of it.
+     *
+     * @param words the word bank to pick words from
+     * @param seed  seed of the random word picks
+     */
+    public EndlessSentence(WordBank words, long seed) {
+        this.words = words;
+        this.rand = new SplittableRandom(seed);
+
+        // every held word (and the space after it) must fit, even if they were all the longest word in the bank
+        int longest = 0;
+        for (int i = 0; i < words.size(); i++) longest = Math.max(longest, words.length(i));
+        int window = Integer.highestOneBit(WORD_WINDOW * (longest + 1) - 1) << 1;
+        chars = new char[window];
+        charMask = window - 1;
+
+        reach(0);
+    }
+
+    @Override
+    public void reach(int word) {
+        firstWord = Math.max(firstWord, word - BEHIND);
+
+        // generate ahead of the player; held words never outgrow the ring buffers, so this never overwrites them
+        while (endWord <= word + AHEAD) {
+            int pick = rand.nextInt(words.size());
+            int length = words.length(pick);
+
+            wordStart[endWord & WORD_MASK] = endChar;
+            wordLength[endWord & WORD_MASK] = length;
+            for (int j = 0; j < length; j++) chars[(endChar + j) & charMask] = words.charAt(pick, j);
+            chars[(endChar + length) & charMask] = ' ';
+
+            endChar += length + 1;
+            endWord++;
+        }
+    }
+
+    @Override
+    public int getWordCount() {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public int getWordStart(int word) {
+        return wordStart[word & WORD_MASK];
+    }
+
+    @Override
+    public int getWordLength(int word) {
+        return wordLength[word & WORD_MASK];
+    }
+
+    @Override
+    public char charAt(int index) {
+        return chars[index & charMask];
+    }
+
+    @Override
+    public int getWordWindow() {
+        return WORD_WINDOW;
+    }
+
+    @Override
+    public int getCharWindow() {
+        return chars.length;
+    }
+
+    @Override
+    public int getFirstWord() {
+        return firstWord;
+    }
+}
@@ -0,0 +1,107 @@
+package com.logandhillon.typeofwar.engine.typing;
+
+/**
+ * A fixed sentence has a set amount of words, and holds all of them for its whole life: a single flat {@code char[]} of
+ * words separated by single spaces, and an {@code int[]} of where each word starts.
+ * <p>
+ * That is two arrays no matter how many words there are, instead of a string (and more) per word. Fixed sentences are
+ * immutable once created.
+ *
+ * @author Logan Dhillon
+ * @see Sentence#of(CharSequence)
+ */
+public final class FixedSentence extends Sentence {
+    private final char[] chars;
+    private final int[]  wordStart; // start of each word, then chars.length + 1 as if the last word had a space after
+
+    /**
+     * Wraps an already-built sentence; neither array is copied and neither must be changed afterwards.
+     *
+     * @param chars     words separated by single spaces, with no leading or trailing spaces
+     * @param wordStart the index of the first character of each word, followed by {@code chars.length + 1}
+     */
+    public FixedSentence(char[] chars, int[] wordStart) {
+        if (wordStart.length == 0 || wordStart[wordStart.length - 1] != chars.length + 1) {
+            throw new IllegalArgumentException("The word index must end with chars.length + 1");
+        }
+        this.chars = chars;
+        this.wordStart = wordStart;
+    }
+
+    /**
+     * Builds a sentence from text, i.e. a custom sentence. Words may be separated by any amount of whitespace.
+     *
+     * @param text the text of the sentence
+     *
+     * @return the sentence
+     */
+    public static FixedSentence of(CharSequence text) {
+        // measure first, so both arrays are allocated once at their exact size
+        int words = 0;
+        int length = 0;
+        boolean inWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            boolean isSpace = Character.isWhitespace(text.charAt(i));
+            if (!isSpace) {
+                if (!inWord) words++;
+                length++;
+            }
+            inWord = !isSpace;
+        }
+        if (words > 0) length += words - 1; // spaces between words
+
+        char[] chars = new char[length];
+        int[] wordStart = new int[words + 1];
+        int end = 0;
+        int word = 0;
+        inWord = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                inWord = false;
+                continue;
+            }
+            if (!inWord) {
+                if (word > 0) chars[end++] = ' ';
+                wordStart[word++] = end;
+                inWord = true;
+            }
+            chars[end++] = c;
+        }
+        wordStart[words] = length + 1;
+
+        return new FixedSentence(chars, wordStart);
+    }
+
+    @Override
+    public int getWordCount() {
+        return wordStart.length - 1;
+    }
+
+    @Override
+    public int getWordStart(int word) {
+        return wordStart[word];
+    }
+
+    @Override
+    public int getWordLength(int word) {
+        return wordStart[word + 1] - wordStart[word] - 1;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return chars[index];
+    }
+
+    /**
+     * @return the amount of characters in the whole sentence, including spaces
+     */
+    public int length() {
+        return chars.length;
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars);
+    }
+}
@@ -0,0 +1,72 @@
+package com.logandhillon.typeofwar.engine.typing;
+
+/**
+ * A sentence is the text of a typing session: words separated by single spaces. Words are referred to by their index
+ * in the sentence, and characters by their index in the whole sentence (spaces included).
+ * <p>
+ * A sentence is either a {@link FixedSentence}, which holds all of its words at once, or an {@link EndlessSentence},
+ * which never ends and only holds a window of words around the player. The typing engine tells the sentence whenever
+ * the player reaches a new word, so an endless sentence knows which words it can forget and which to generate.
+ *
+ * @author Logan Dhillon
+ * @see TypingEngine
+ */
+public abstract class Sentence {
+    /**
+     * Builds a sentence from text, i.e. a custom sentence. Words may be separated by any amount of whitespace.
+     *
+     * @param text the text of the sentence
+     *
+     * @return the sentence
+     */
+    public static Sentence of(CharSequence text) {
+        return FixedSentence.of(text);
+    }
+
+    /**
+     * @return the amount of words in the sentence, or {@link Integer#MAX_VALUE} if it is endless
+     */
+    public abstract int getWordCount();
+
+    /**
+     * @return the index of the first character of the word
+     */
+    public abstract int getWordStart(int word);
+
+    public abstract int getWordLength(int word);
+
+    /**
+     * @return the character at an index of the whole sentence
+     */
+    public abstract char charAt(int index);
+
+    /**
+     * @return how many words in a row this sentence holds at most (a power of two), or 0 if it holds all of them
+     */
+    public int getWordWindow() {
+        return 0;
+    }
+
+    /**
+     * @return how many characters in a row this sentence holds at most (a power of two), or 0 if it holds all of them
+     */
+    public int getCharWindow() {
+        return 0;
+    }
+
+    /**
+     * @return the oldest word that this sentence still holds
+     */
+    public int getFirstWord() {
+        return 0;
+    }
+
+    /**
+     * Called when the player reaches a word for the first time. After this, the words from a while before it until a
+     * while after it must be held.
+     *
+     * @param word the index of the word
+     */
+    public void reach(int word) {
+    }
+}
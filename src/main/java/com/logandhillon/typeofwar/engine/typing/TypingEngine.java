@@ -0,0 +1,303 @@
+package com.logandhillon.typeofwar.engine.typing;
+
+import java.util.Arrays;
+
+/**
+ * The typing engine is the state machine behind a typing session: it validates every typed character against the
+ * target sentence and keeps the player's statistics. It knows nothing about JavaFX, and it doesn't allocate anything
+ * per key once it has been created (its input only grows, rarely, as the player reaches new words).
+ * <p>
+ * The target is a {@link Sentence}. Typed input is kept as a cursor (the current word and how far into it the player
+ * is), a bitmap of which characters were typed correctly, and the characters typed past the end of a word. Input is
+ * only held for the words the player has reached, and grows as they go. The statistics are counters that are updated as
+ * the player types, so reading them is O(1).
+ * <p>
+ * If the target only holds a window of its words (an {@link EndlessSentence}), input is held in ring buffers of that
+ * same size instead, so it never grows either.
+ * <p>
+ * Correct keys that are typed after a backspace repay that backspace instead of counting as correct characters, so
+ * deleting and retyping can't be used to farm key presses.
+ *
+ * @author Logan Dhillon
+ * @see com.logandhillon.typeofwar.entity.SentenceEntity
+ */
+public final class TypingEngine {
+    /** the most characters that are kept past the end of a word; anything after that is counted but not shown */
+    public static final int MAX_OVERFLOW = 16;
+
+    private static final int INITIAL_WORDS = 64; // words of input to make room for before the player starts
+
+    private final Sentence target;
+    private final int      wordCount;
+    private final int      wordMask; // words and characters are looked up by index & mask, -1 if everything is held
+    private final int      charMask;
+
+    // typed input, only as far as the furthest word the player has reached
+    private long[] correct; // bit i is set if character i of the target was typed correctly
+    private int[]  typed; // characters typed in each word, including overflow
+    private int[]  overflowSlot; // 1 + where each word's overflow is in the overflow pool, or 0 if it has none
+    private char[] overflow = new char[0]; // MAX_OVERFLOW characters per slot, grown as words overflow
+    private int    overflowSlots;
+
+    private int currentWord;
+    private int furthestWord = -1;
+    private int typedChars;
+    private int correctChars;
+    private int correctWords;
+    private int backspaces; // backspaces that haven't been repaid by a correct key yet
+
+    private boolean isComplete;
+
+    /**
+     * The outcome of a typed key, so the view can react to it (i.e. play a sound).
+     */
+    public enum Result {
+        /** the key was correct and counts as a correct character */
+        CORRECT,
+        /** the key was correct, but only repaid an earlier backspace */
+        REPAID,
+        /** the key was incorrect */
+        INCORRECT,
+        /** the key was a space that didn't finish a word */
+        NONE,
+        /** the session is complete, the key was ignored */
+        IGNORED
+    }
+
+    /**
+     * Creates a new session for a target sentence.
+     *
+     * @param target the sentence to type
+     */
+    public TypingEngine(Sentence target) {
+        this.target = target;
+        this.wordCount = target.getWordCount();
+
+        if (target.getWordWindow() > 0) {
+            // one slot per word and one bit per character the target can hold, and an overflow slot for every word
+            wordMask = target.getWordWindow() - 1;
+            charMask = target.getCharWindow() - 1;
+            typed = new int[target.getWordWindow()];
+            overflow = new char[target.getWordWindow() * MAX_OVERFLOW];
+            correct = new long[(target.getCharWindow() + 63) >>> 6];
+        } else {
+            wordMask = -1;
+            charMask = -1;
+            typed = new int[Math.min(wordCount, INITIAL_WORDS)];
+            overflowSlot = new int[typed.length];
+            correct = new long[0];
+        }
+        if (wordCount > 0) reach(0);
+
+        isComplete = wordCount == 0;
+    }
+
+    /**
+     * Makes sure there is room for the input of a word, and every word before it.
+     */
+    private void reach(int word) {
+        if (word <= furthestWord) return;
+        furthestWord = word;
+        target.reach(word);
+
+        int start = target.getWordStart(word);
+        int end = start + target.getWordLength(word);
+
+        if (wordMask != -1) {
+            // the word's slot was last used by a word that has been dropped since, so clear what it left behind
+            typed[word & wordMask] = 0;
+            for (int i = start; i < end; i++) correct[(i & charMask) >>> 6] &= ~(1L << i);
+            return;
+        }
+
+        if (word >= typed.length) {
+            int capacity = Math.min(Math.max(word + 1, typed.length * 2), wordCount);
+            typed = Arrays.copyOf(typed, capacity);
+            overflowSlot = Arrays.copyOf(overflowSlot, capacity);
+        }
+        if (end > correct.length << 6) {
+            correct = Arrays.copyOf(correct, Math.max((end + 63) >>> 6, correct.length * 2));
+        }
+    }
+
+    /**
+     * Handles a typed character; spaces move on to the next word.
+     *
+     * @param c the character that was typed, must not be a control character
+     *
+     * @return the outcome of the key
+     */
+    public Result type(char c) {
+        if (isComplete) return Result.IGNORED;
+        typedChars++;
+
+        int word = currentWord;
+        int slot = word & wordMask;
+        if (c == ' ') {
+            // a space is only correct if the word was typed out to its full length
+            Result result = typed[slot] == getWordLength(word) ? credit() : Result.NONE;
+            if (typed[slot] > 0 && word + 1 < wordCount) reach(++currentWord);
+            return result;
+        }
+
+        boolean wasCorrect = isWordCorrect(word);
+        boolean isCorrect = false;
+
+        int j = typed[slot];
+        if (j < getWordLength(word)) {
+            int i = target.getWordStart(word) + j;
+            isCorrect = target.charAt(i) == c;
+            if (isCorrect) correct[(i & charMask) >>> 6] |= 1L << i;
+            typed[slot]++;
+        } else if (j - getWordLength(word) < MAX_OVERFLOW) {
+            int k = overflowIndex(word) + j - getWordLength(word); // may grow the pool, so look it up first
+            overflow[k] = c;
+            typed[slot]++;
+        }
+
+        updateCorrectWords(word, wasCorrect);
+        return isCorrect ? credit() : Result.INCORRECT;
+    }
+
+    /**
+     * Handles a backspace: deletes the last typed character of the current word, or goes back to the previous word if
+     * nothing has been typed in this one yet (and the target still holds it).
+     */
+    public void backspace() {
+        if (isComplete) return;
+        backspaces++;
+
+        int word = currentWord;
+        if (typed[word & wordMask] == 0) {
+            if (word > target.getFirstWord()) currentWord--;
+            return;
+        }
+
+        boolean wasCorrect = isWordCorrect(word);
+
+        int j = --typed[word & wordMask];
+        if (j < getWordLength(word)) {
+            int i = target.getWordStart(word) + j;
+            correct[(i & charMask) >>> 6] &= ~(1L << i);
+        }
+
+        updateCorrectWords(word, wasCorrect);
+    }
+
+    /**
+     * @return where the overflow of a word starts in the overflow pool, giving it a slot if it doesn't have one yet
+     */
+    private int overflowIndex(int word) {
+        if (wordMask != -1) return (word & wordMask) * MAX_OVERFLOW; // every word has a slot
+
+        if (overflowSlot[word] == 0) {
+            if ((overflowSlots + 1) * MAX_OVERFLOW > overflow.length) {
+                overflow = Arrays.copyOf(overflow, Math.max(overflow.length * 2, 4 * MAX_OVERFLOW));
+            }
+            overflowSlot[word] = ++overflowSlots;
+        }
+        return (overflowSlot[word] - 1) * MAX_OVERFLOW;
+    }
+
+    /**
+     * Counts a correct key, unless it only repays a backspace.
+     */
+    private Result credit() {
+        if (backspaces > 0) {
+            backspaces--;
+            return Result.REPAID;
+        }
+        correctChars++;
+        return Result.CORRECT;
+    }
+
+    /**
+     * Updates the correct word counter after a word was changed, and completes the session once every word is correct.
+     */
+    private void updateCorrectWords(int word, boolean wasCorrect) {
+        boolean isCorrect = isWordCorrect(word);
+        if (isCorrect == wasCorrect) return;
+
+        correctWords += isCorrect ? 1 : -1;
+        if (correctWords == wordCount) isComplete = true;
+    }
+
+    /**
+     * @return true if the word has been typed out exactly
+     */
+    private boolean isWordCorrect(int word) {
+        if (typed[word & wordMask] != getWordLength(word)) return false;
+        for (int i = target.getWordStart(word), end = i + getWordLength(word); i < end; i++) {
+            if ((correct[(i & charMask) >>> 6] & (1L << i)) == 0) return false;
+        }
+        return true;
+    }
+
+    public int getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * @return the word the player is currently typing
+     */
+    public int getCurrentWord() {
+        return currentWord;
+    }
+
+    public Sentence getTarget() {
+        return target;
+    }
+
+    public int getWordLength(int word) {
+        return target.getWordLength(word);
+    }
+
+    /**
+     * @return how many characters have been typed in a word, including those past its end
+     */
+    public int getTyped(int word) {
+        return word <= furthestWord ? typed[word & wordMask] : 0;
+    }
+
+    /**
+     * @param word the index of the word
+     * @param j    the index of the character in that word, must have been typed
+     *
+     * @return true if that character was typed correctly
+     */
+    public boolean isCorrect(int word, int j) {
+        int i = target.getWordStart(word) + j;
+        return j < getWordLength(word) && ((i & charMask) >>> 6) < correct.length
+               && (correct[(i & charMask) >>> 6] & (1L << i)) != 0;
+    }
+
+    /**
+     * @param word the index of the word
+     * @param j    how far past the end of the word the character is, starting at 0
+     *
+     * @return the character that was typed there
+     */
+    public char getOverflow(int word, int j) {
+        if (wordMask != -1) return overflow[(word & wordMask) * MAX_OVERFLOW + j];
+        return overflow[(overflowSlot[word] - 1) * MAX_OVERFLOW + j];
+    }
+
+    public int getTypedChars() {
+        return typedChars;
+    }
+
+    public int getCorrectChars() {
+        return correctChars;
+    }
+
+    public int getCorrectWords() {
+        return correctWords;
+    }
+
+    /**
+     * @return true once every word has been typed correctly
+     */
+    public boolean isComplete() {
+        return isComplete;
+    }
+}
@@ -1,34 +1,50 @@
 package com.logandhillon.typeofwar.entity;
 
+import com.logandhillon.typeofwar.engine.GlyphAtlas;
 import com.logandhillon.typeofwar.entity.core.Entity;
 import com.logandhillon.typeofwar.resource.Audios;
 import com.logandhillon.typeofwar.resource.Fonts;
-import javafx.geometry.VPos;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
 import javafx.scene.text.TextAlignment;
 
+import java.util.concurrent.TimeUnit;
+
 /**
+ * The countdown counts down to a set point in time, rather than for a set amount of time from whenever it was created.
+ * This way, every player's countdown ends at the same time, no matter when their scene was built; a countdown that
+ * starts early just shows "3" for longer, and one that starts late skips ahead.
+ *
  * @author Logan Dhillon
  */
 public class CountdownEntity extends Entity {
-    private static final Font     FONT = Font.font(Fonts.DM_MONO_MEDIUM, 144);
-    private final        Runnable onTimerEnd;
+    /** how long the countdown takes: "3", "2", "1", then "GO!" */
+    public static final long LENGTH = TimeUnit.SECONDS.toNanos(4);
+
+    private static final long       STEP   = TimeUnit.SECONDS.toNanos(1);
+    private static final Font       FONT   = Font.font(Fonts.DM_MONO_MEDIUM, 144);
+    private static final GlyphAtlas ATLAS  = new GlyphAtlas(FONT, Color.WHITE);
+    private static final String[]   LABELS = { "GO!", "1", "2", "3" }; // indexed by the current number
+
+    private final Runnable onTimerEnd;
+    private final long     end;
 
     private int     currentNumber;
-    private float   timer;
+    private float   timer; // how far into the current number the countdown is, from 0 to 1
     private boolean closed; // closed means the countdown will no longer do anything
 
     /**
      * Creates an entity at the specified position.
      *
-     * @param x x-position (from left)
-     * @param y y-position (from top)
+     * @param x   x-position (from left)
+     * @param y   y-position (from top)
+     * @param end when the countdown ends, on this machine's {@link System#nanoTime()}
      */
-    public CountdownEntity(float x, float y, Runnable onTimerEnd) {
+    public CountdownEntity(float x, float y, long end, Runnable onTimerEnd) {
         super(x, y);
         this.onTimerEnd = onTimerEnd;
+        this.end = end;
         currentNumber = 3;
         timer = 0;
         Audios.COUNTDOWN.setVolume(0.1);
@@ -38,15 +54,18 @@ public class CountdownEntity extends Entity {
     @Override
     public void onUpdate(float dt) {
         if (closed) return;
-        timer += dt;
 
-        if (timer >= 1f) {
-            currentNumber--;
-            timer = 0;
+        // derived from the end time every frame, so frame times can't add up to drift
+        long remaining = end - System.nanoTime();
+        int number = remaining <= 0 ? -1 : (int)Math.min(3, (remaining - 1) / STEP);
+        timer = number == 3 && remaining > LENGTH ? 0 : 1 - (float)(remaining - number * STEP) / STEP;
+
+        if (number != currentNumber) {
+            currentNumber = number;
             if (currentNumber == 0) {
                 Audios.COUNTDOWN_END.setVolume(0.1);
                 Audios.COUNTDOWN_END.play();
-            } else {
+            } else if (currentNumber > 0) {
                 Audios.COUNTDOWN.setVolume(0.1);
                 Audios.COUNTDOWN.play();
             }
@@ -64,17 +83,15 @@ public class CountdownEntity extends Entity {
     protected void onRender(GraphicsContext g, float x, float y) {
         if (closed) return;
 
-        g.setFont(FONT);
-        g.setTextAlign(TextAlignment.CENTER);
-        g.setTextBaseline(VPos.CENTER);
-
         float delta = 1 - timer;
 
         g.save();
         g.translate(x, y);
         g.scale(delta, delta);
-        g.setFill(Color.hsb(0, 0, 1, Math.min(delta, 1)));
-        g.fillText(currentNumber == 0 ? "GO!" : String.valueOf(currentNumber), 0, 0);
+        g.setGlobalAlpha(Math.min(delta, 1));
+        // centered both ways, so the baseline is half the text's height below the center
+        ATLAS.drawText(g, LABELS[currentNumber], 0, 0, (ATLAS.getAscent() - ATLAS.getDescent()) / 2,
+                       TextAlignment.CENTER);
         g.restore();
     }
 
@@ -1,5 +1,6 @@
 package com.logandhillon.typeofwar.entity;
 
+import com.logandhillon.typeofwar.engine.GlyphAtlas;
 import com.logandhillon.typeofwar.entity.core.Entity;
 import com.logandhillon.typeofwar.resource.Colors;
 import com.logandhillon.typeofwar.resource.Fonts;
@@ -22,7 +23,16 @@ public class GameStatisticsEntity extends Entity {
     private static final Font FONT_HEADER = Font.font(Fonts.DM_MONO_MEDIUM, 28);
     private static final Font FONT_BODY   = Font.font(Fonts.DM_MONO, 20);
 
-    private static final int WPM_CHAR_WIDTH   = 29;
+    // glyph atlases for everything that is drawn in a solid color, each followed by the indices of its colors
+    private static final GlyphAtlas ATLAS_WPM    = new GlyphAtlas(FONT_WPM, Color.WHITE);
+    private static final int        WPM_WHITE    = 0;
+    private static final GlyphAtlas ATLAS_HEADER = new GlyphAtlas(FONT_HEADER, Color.WHITE, Color.RED);
+    private static final int        HEADER_WHITE = 0;
+    private static final int        HEADER_RED   = 1;
+    private static final GlyphAtlas ATLAS_BODY   = new GlyphAtlas(FONT_BODY, Color.WHITE, Color.GRAY);
+    private static final int        BODY_WHITE   = 0;
+    private static final int        BODY_GRAY    = 1;
+
     private static final int BODY_LINE_HEIGHT = 36;
 
     private final float width;
@@ -97,33 +107,28 @@ public class GameStatisticsEntity extends Entity {
      */
     @Override
     protected void onRender(GraphicsContext g, float x, float y) {
-        g.setFill(Color.WHITE);
-        g.setTextAlign(TextAlignment.LEFT);
-
         // left side stats
-        g.setFont(FONT_WPM);
-        g.fillText(wpmDisplay, x, y);
-
-        g.setFont(FONT_HEADER);
-        g.fillText("wpm", x + wpmDisplay.length() * WPM_CHAR_WIDTH + 16, y);
+        ATLAS_WPM.drawText(g, wpmDisplay, WPM_WHITE, x, y, TextAlignment.LEFT);
+        ATLAS_HEADER.drawText(g, "wpm", HEADER_WHITE, x + ATLAS_WPM.measure(wpmDisplay) + 16, y, TextAlignment.LEFT);
 
-        g.setFont(FONT_BODY);
-        g.fillText(accuracyTextDisplay, x, y + BODY_LINE_HEIGHT);
-        g.fillText(completionText, x, y + 2 * BODY_LINE_HEIGHT);
+        ATLAS_BODY.drawText(g, accuracyTextDisplay, BODY_WHITE, x, y + BODY_LINE_HEIGHT, TextAlignment.LEFT);
+        ATLAS_BODY.drawText(g, completionText, BODY_WHITE, x, y + 2 * BODY_LINE_HEIGHT, TextAlignment.LEFT);
 
         // right side stats
-        g.setTextAlign(TextAlignment.RIGHT);
-
-        g.setFont(FONT_HEADER);
-        g.setFill(isWinning ? Colors.GOLD_GRADIENT : Color.RED);
-        g.fillText(isWinning ? "You're in the lead!" : "Catch-up!", x + width, y); // TODO: impl.
+        if (isWinning) {
+            // gradients can't come from an atlas
+            g.setFont(FONT_HEADER);
+            g.setTextAlign(TextAlignment.RIGHT);
+            g.setFill(Colors.GOLD_GRADIENT);
+            g.fillText("You're in the lead!", x + width, y); // TODO: impl.
+        } else {
+            ATLAS_HEADER.drawText(g, "Catch-up!", HEADER_RED, x + width, y, TextAlignment.RIGHT);
+        }
 
         // completed message
         if (isComplete) {
-            g.setFont(FONT_BODY);
-            g.setFill(Color.GRAY);
-            g.setTextAlign(TextAlignment.CENTER);
-            g.fillText("Waiting for others to finish...", x + width / 2, y);
+            ATLAS_BODY.drawText(g, "Waiting for others to finish...", BODY_GRAY, x + width / 2, y,
+                                TextAlignment.CENTER);
         }
     }
 
@@ -1,5 +1,6 @@
 package com.logandhillon.typeofwar.entity;
 
+import com.logandhillon.typeofwar.engine.RopeModel;
 import com.logandhillon.typeofwar.entity.core.BoundEntity;
 import com.logandhillon.typeofwar.scene.TypeOfWarScene;
 import javafx.scene.canvas.GraphicsContext;
@@ -27,16 +28,26 @@ public class RopeEntity extends BoundEntity<TypeOfWarScene> {
 
     private final ArrayList<PlayerObject> leftTeam;
     private final ArrayList<PlayerObject> rightTeam;
-    private       float                   multiplier;
+    private final RopeModel               model;
 
-    public RopeEntity(float x, float y) {
+    /**
+     * @param x     distance from left
+     * @param y     distance from top
+     * @param model the rope model this entity shows, team 1 is on the left
+     */
+    public RopeEntity(float x, float y, RopeModel model) {
         super(x, y);
         leftTeam = new ArrayList<>();
         rightTeam = new ArrayList<>();
+        this.model = model;
     }
 
     @Override
     public void onUpdate(float dt) {
+        // derived from the model's totals every frame, never nudged, so it is exactly where the server's rope was (a
+        // client's model interpolates the server's snapshots, so it moves smoothly between them)
+        goalpostX = GOALPOST_CENTER_X + (float)(X_CONSTANT * model.getOffset(System.nanoTime()));
+
         if (goalpostX + 324 < FLAG_X) {
             parent.signalGameEnd(1);
         } else if (goalpostX > FLAG_X) {
@@ -136,18 +147,6 @@ public class RopeEntity extends BoundEntity<TypeOfWarScene> {
      * The player on this client should always be on the left, and the relative enemy team should appear on the right.
      */
 
-    public void moveRopeL() {
-        goalpostX -= X_CONSTANT * multiplier;
-    }
-
-    public void moveRopeR() {
-        goalpostX += X_CONSTANT * multiplier;
-    }
-
-    public void setMultiplier(float multiplier) {
-        this.multiplier = multiplier;
-    }
-
     /**
      * Calculates the current winning team based on ∆pos of rope
      *
@@ -2,6 +2,9 @@ package com.logandhillon.typeofwar.entity;
 
 import com.logandhillon.typeofwar.TypeOfWar;
 import com.logandhillon.typeofwar.engine.GameScene;
+import com.logandhillon.typeofwar.engine.GlyphAtlas;
+import com.logandhillon.typeofwar.engine.typing.Sentence;
+import com.logandhillon.typeofwar.engine.typing.TypingEngine;
 import com.logandhillon.typeofwar.entity.core.BoundEntity;
 import com.logandhillon.typeofwar.scene.TypeOfWarScene;
 import com.logandhillon.typeofwar.resource.Fonts;
@@ -12,7 +15,6 @@ import javafx.scene.input.KeyEvent;
 import javafx.scene.media.AudioClip;
 import javafx.scene.paint.Color;
 import javafx.scene.text.Font;
-import javafx.scene.text.TextAlignment;
 
 import java.util.Arrays;
 import java.util.Objects;
@@ -20,8 +22,8 @@ import java.util.Objects;
 import static com.logandhillon.typeofwar.TypeOfWar.CANVAS_HEIGHT;
 
 /**
- * A SentenceEntity is the entity responsible for displaying the sentence and user input. Handles keyboard input and
- * text validation.
+ * A SentenceEntity is the entity responsible for displaying the sentence and user input. It forwards keyboard input to
+ * a {@link TypingEngine}, which does the text validation, and renders the engine's state.
  * <p>
  * Moreover, SentenceEntity communicates with its parent class, {@link TypeOfWarScene}, to update statistics within the
  * scene. This entity can only be used within a {@link TypeOfWarScene}.
@@ -31,22 +33,33 @@ import static com.logandhillon.typeofwar.TypeOfWar.CANVAS_HEIGHT;
  * @see SentenceEntity#onKeyPressed(KeyEvent)
  */
 public class SentenceEntity extends BoundEntity<TypeOfWarScene> {
-    private static final int  CHAR_WIDTH  = 18;
-    private static final int  LINE_HEIGHT = 28;
-    private static final Font FONT        = Font.font(Fonts.DM_MONO, 32);
-
-    private String[]        text;
-    private StringBuilder[] input;
-    private int             currentWord;
-    private int             currentWordInLine = 1;
-    private int             wordsInLine;
-    private int             ignoredWords;
-    private boolean         countWords        = true;
-
-    private int typedChars;
-    private int correctChars;
-    private int correctWords;
-    private int backspaces;
+    private static final int   CHAR_WIDTH   = 18;
+    private static final int   LINE_HEIGHT  = 28;
+    private static final int   LINE_SPACING = 4 * CHAR_WIDTH; // distance between the baselines of two lines
+    private static final int   LEFT_MARGIN  = 64;
+    private static final int   WRAP_X       = TypeOfWar.CANVAS_WIDTH - 128; // words starting past this wrap
+    private static final float FIRST_LINE_Y = (CANVAS_HEIGHT + 310) / 2f;
+    private static final Font  FONT         = Font.font(Fonts.DM_MONO, 32);
+    private static final int   LAYOUT_AHEAD = 128; // words laid out past the current word, more than fit on screen
+
+    // every color the sentence is drawn in, as indices into the glyph atlas
+    private static final int        WHITE    = 0;
+    private static final int        RED      = 1;
+    private static final int        DARK_RED = 2;
+    private static final int        GRAY     = 3;
+    private static final GlyphAtlas ATLAS    = new GlyphAtlas(FONT, Color.WHITE, Color.RED, Color.DARKRED,
+                                                              Color.GRAY);
+
+    private TypingEngine typing;
+
+    // layout index, built as the player goes so rendering only has to touch the lines that are on screen
+    private byte[] wordColumn; // column (in characters from the left margin) that each word starts at
+    private int[]  lineStart; // first word of each line
+    private int    layoutMask; // both are looked up by index & mask, like the typing engine's input
+    private int    laidOut; // words that have been laid out
+    private int    lineCount;
+    private int    column; // column after the last word that was laid out
+    private int    topLine; // line of the current word
 
     private final float cursorY = y - (LINE_HEIGHT * 0.25f);
 
@@ -64,7 +77,7 @@ public class SentenceEntity extends BoundEntity<TypeOfWarScene> {
      * @param x distance from left
      * @param y distance from top
      *
-     * @apiNote {@link SentenceEntity#setText(String)} must be called before using this entity.
+     * @apiNote {@link SentenceEntity#setText(Sentence)} must be called before using this entity.
      */
     public SentenceEntity(float x, float y) {
         super(x, y);
@@ -83,7 +96,8 @@ public class SentenceEntity extends BoundEntity<TypeOfWarScene> {
      * Renders the original sentence and the user's input, which is automatically handled by the event handlers within
      * this file.
      * <p>
-     * The position of the characters within
+     * The line with the current word is always the top line, and only the lines that fit on screen below it are
+     * rendered, so the cost of a frame doesn't depend on the length of the sentence.
      *
      * @param g the graphical context to render to.
      * @param x the x position to render the entity at
@@ -91,63 +105,71 @@ public class SentenceEntity extends BoundEntity<TypeOfWarScene> {
      */
     @Override
     public void onRender(GraphicsContext g, float x, float y) {
-        g.setFont(FONT);
-        g.setTextAlign(TextAlignment.LEFT);
-
-        float dx = 64; // left-margin of text
-        float dy = (CANVAS_HEIGHT + 310) / 2f;
-        float cursorX = dx - 2 * CHAR_WIDTH;
-
-        // for each word
-        for (int i = 0; i < text.length; i++) {
-            if (i < ignoredWords) continue;
-            if (dx > TypeOfWar.CANVAS_WIDTH - 128) {
-                dx = 64;
-                dy += 4 * CHAR_WIDTH;
-                countWords = false;
-            } else if (countWords) {
-                wordsInLine++;
+        if (typing.getWordCount() == 0) return;
+
+        float dy = FIRST_LINE_Y;
+        float cursorX = LEFT_MARGIN;
+        int currentWord = typing.getCurrentWord();
+        layoutTo(currentWord + LAYOUT_AHEAD);
+
+        // the current word only moves a word at a time, so its line is always right next to where it was
+        while (topLine + 1 < lineCount && lineStart[(topLine + 1) & layoutMask] <= currentWord) topLine++;
+        while (lineStart[topLine & layoutMask] > currentWord) topLine--;
+
+        // for each line that is on screen
+        for (int line = topLine; line < lineCount && dy <= CANVAS_HEIGHT; line++) {
+            int overflow = 0; // extra characters typed past the end of a word push the rest of its line along
+            int end = line + 1 < lineCount ? lineStart[(line + 1) & layoutMask] : laidOut;
+
+            // for each word in that line
+            for (int i = lineStart[line & layoutMask]; i < end; i++) {
+                float dx = LEFT_MARGIN + ((wordColumn[i & layoutMask] & 0xFF) + overflow) * CHAR_WIDTH;
+                renderWord(g, i, dx, dy);
+
+                if (i == currentWord) cursorX = dx + typing.getTyped(i) * CHAR_WIDTH;
+                overflow += Math.max(typing.getTyped(i) - typing.getWordLength(i), 0);
             }
 
-            // do not render characters that go off the screen
-            if (dy > CANVAS_HEIGHT) continue;
-
-            // for each letter in each word
-            for (int j = 0; j < Math.max(text[i].length(), input[i].length()); j++) {
-                // if input is long enough
-                if (j < input[i].length()) {
-                    // if input is in word
-                    if (j < text[i].length()) {
-                        // white for correct character, red for incorrect character
-                        g.setFill(text[i].charAt(j) == input[i].charAt(j) ? Color.WHITE : Color.RED);
-                        g.fillText(String.valueOf(text[i].charAt(j)), dx, dy);
-                    } else {
-                        // fill dark red if text extends too long
-                        g.setFill(Color.DARKRED);
-                        g.fillText(String.valueOf(input[i].charAt(j)), dx, dy);
-                    }
-
-                    cursorX = dx;
+            dy += LINE_SPACING;
+        }
+
+        g.setFill(Color.WHITE);
+        g.fillRect(cursorX, cursorY, 1, LINE_HEIGHT);
+    }
+
+    /**
+     * Renders a single word and what has been typed of it, one glyph at a time from the atlas.
+     *
+     * @param g    the graphical context to render to
+     * @param word the index of the word
+     * @param dx   the x position of the first character
+     * @param dy   the baseline of the line
+     */
+    private void renderWord(GraphicsContext g, int word, float dx, float dy) {
+        Sentence text = typing.getTarget();
+        int start = text.getWordStart(word);
+        int length = typing.getWordLength(word);
+        int typed = typing.getTyped(word);
+
+        // for each letter in the word
+        for (int j = 0; j < Math.max(length, typed); j++) {
+            // if input is long enough
+            if (j < typed) {
+                // if input is in word
+                if (j < length) {
+                    // white for correct character, red for incorrect character
+                    ATLAS.drawChar(g, text.charAt(start + j), typing.isCorrect(word, j) ? WHITE : RED, dx, dy);
                 } else {
-                    // show dark red if word current word is ahead of this word (thus word incomplete) otherwise gray
-                    g.setFill(i >= currentWord ? Color.GRAY : Color.DARKRED);
-                    g.fillText(String.valueOf(text[i].charAt(j)), dx, dy);
+                    // fill dark red if text extends too long
+                    ATLAS.drawChar(g, typing.getOverflow(word, j - length), DARK_RED, dx, dy);
                 }
-
-                dx += CHAR_WIDTH;
+            } else {
+                // show dark red if word current word is ahead of this word (thus word incomplete) otherwise gray
+                ATLAS.drawChar(g, text.charAt(start + j), word >= typing.getCurrentWord() ? GRAY : DARK_RED, dx, dy);
             }
 
             dx += CHAR_WIDTH;
         }
-
-        // handle moving across words (independent of char)
-        if (input[currentWord].isEmpty()) {
-            if (currentWord == 0) cursorX += CHAR_WIDTH;
-            else cursorX += (text[currentWord - 1].length() - input[currentWord - 1].length() + 1) * CHAR_WIDTH;
-        }
-
-        g.setFill(Color.WHITE);
-        g.fillRect(cursorX + CHAR_WIDTH, cursorY, 1, LINE_HEIGHT);
     }
 
     /**
@@ -157,22 +179,51 @@ public class SentenceEntity extends BoundEntity<TypeOfWarScene> {
      *
      * @apiNote This entity must be attached to a parent BEFORE calling this method!
      */
-    public void setText(String text) {
-        this.text = text.split(" ");
-        parent.setWordCount(this.text.length);
+    public void setText(Sentence text) {
+        typing = new TypingEngine(text);
+        parent.setWordCount(typing.getWordCount());
 
-        // reset user input
-        input = new StringBuilder[this.text.length];
-        Arrays.setAll(input, i -> new StringBuilder());
         isFirstKeyPress = true;
         isComplete = false;
 
-        currentWord = 0;
+        // a line is far less than 256 columns wide, and has at least one word
+        if (text.getWordWindow() > 0) {
+            // the sentence only holds a window of words, so the layout only has to as well
+            layoutMask = text.getWordWindow() - 1;
+            wordColumn = new byte[text.getWordWindow()];
+            lineStart = new int[text.getWordWindow()];
+        } else {
+            layoutMask = -1;
+            wordColumn = new byte[typing.getWordCount()];
+            lineStart = new int[16];
+        }
+        laidOut = 0;
+        lineCount = 0;
+        column = 0;
+        topLine = 0;
+    }
 
-        // reset user stats
-        correctChars = 0;
-        typedChars = 0;
-        correctWords = 0;
+    /**
+     * Lays out the words of the text up to a word: which line each one wraps to, and which column of that line it
+     * starts at. Words that have already been laid out are left as they are.
+     *
+     * @param end the index after the last word to lay out
+     */
+    private void layoutTo(int end) {
+        end = Math.min(end, typing.getWordCount());
+        for (; laidOut < end; laidOut++) {
+            // wrap to a new line if this word would start too far right
+            if (laidOut == 0 || LEFT_MARGIN + column * CHAR_WIDTH > WRAP_X) {
+                if (layoutMask == -1 && lineCount == lineStart.length) {
+                    lineStart = Arrays.copyOf(lineStart, lineStart.length * 2);
+                }
+                lineStart[lineCount++ & layoutMask] = laidOut;
+                column = 0;
+            }
+
+            wordColumn[laidOut & layoutMask] = (byte)column;
+            column += typing.getWordLength(laidOut) + 1; // word and the space after it
+        }
     }
 
     /**
@@ -191,28 +242,14 @@ public class SentenceEntity extends BoundEntity<TypeOfWarScene> {
         }
 
         // handle backspace
-        if (e.getCode() == KeyCode.BACK_SPACE) {
-            backspaces++;
-            // decrease correct word count if word was correct
-            if (text[currentWord].contentEquals(input[currentWord])) {
-                correctWords--;
-            }
-
-            // decrement word counters if current word is empty OR if this is the last word and it was full
-            if (input[currentWord].isEmpty() && currentWord > 0) {
-                currentWord--;
-                currentWordInLine--;
-            } else if (!input[currentWord].isEmpty()) {
-                input[currentWord].deleteCharAt(input[currentWord].length() - 1);
-            }
-        }
+        if (e.getCode() == KeyCode.BACK_SPACE) typing.backspace();
 
         // update typing statistics
-        parent.updateStats(correctChars, typedChars, correctWords);
+        parent.updateStats(typing.getCorrectChars(), typing.getTypedChars(), typing.getCorrectWords());
     }
 
     /**
-     * Runs when any key is typed; handles typed characters and new words (spaces)
+     * Runs when any key is typed; hands typed characters and new words (spaces) to the typing engine.
      *
      * @param e KeyEvent from {@link Scene#onKeyTypedProperty()}
      */
@@ -225,56 +262,24 @@ public class SentenceEntity extends BoundEntity<TypeOfWarScene> {
         // ignore blank/control characters
         if (c.isEmpty() || Character.isISOControl(c.charAt(0))) return;
 
-        // handle spaces (new words); increment word counter only if current word isn't blank
-        if (c.equals(" ")) {
-            if (currentWordInLine - 1 == wordsInLine - 1) {
-                ignoredWords += wordsInLine;
-                wordsInLine = 0;
-                currentWordInLine = 0;
-                countWords = true;
-            }
-            if (input[currentWord].length() == text[currentWord].length()) {
+        switch (typing.type(c.charAt(0))) {
+            case CORRECT -> {
                 SFX_CORRECT.setVolume(0.1);
                 SFX_CORRECT.play();
-
-                if (backspaces > 0) {
-                    backspaces--;
-                } else {
-                    correctChars++;
-                    parent.sendCorrectKeyPress(); // TODO: fix in practice mode
-                }
+                parent.sendCorrectKeyPress(); // TODO: fix in practice mode
             }
-            if (!input[currentWord].isEmpty() && currentWord + 1 < input.length) {
-                currentWord++;// increment word counter LAST so we can do statistics checks
-                currentWordInLine++;
+            case REPAID -> {
+                SFX_CORRECT.setVolume(0.1);
+                SFX_CORRECT.play();
             }
-        } else {
-            input[currentWord].append(c);
-        }
-
-        // handle the other characters
-        if (input[currentWord].length() <= text[currentWord].length() // automatically fail if the word is too long
-            && String.valueOf(text[currentWord].charAt(Math.max(input[currentWord].length() - 1, 0))).equals(c)) {
-            SFX_CORRECT.setVolume(0.1);
-            SFX_CORRECT.play();
-
-            if (backspaces > 0) {
-                backspaces--;
-            } else {
-                correctChars++;
-                parent.sendCorrectKeyPress(); // TODO: fix in practice mode
+            case INCORRECT -> {
+                SFX_INCORRECT.setVolume(0.2);
+                SFX_INCORRECT.play();
             }
-        } else if (!c.equals(" ")) /* don't play err sfx if it's a space */ {
-            SFX_INCORRECT.setVolume(0.2);
-            SFX_INCORRECT.play();
         }
-        typedChars++;
-
-        // increment correct word count if the input matches the sentence
-        if (text[currentWord].contentEquals(input[currentWord])) correctWords++;
 
         // if all words are correct then finish the session
-        if (correctWords == text.length) {
+        if (typing.isComplete()) {
             isComplete = true;
             parent.onTypingFinished();
         }
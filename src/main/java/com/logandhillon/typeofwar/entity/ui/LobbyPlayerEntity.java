@@ -18,8 +18,9 @@ import javafx.scene.text.TextAlignment;
  */
 public class LobbyPlayerEntity extends BoundEntity<UIScene> {
     private static final Font LABEL_FONT = Font.font(Fonts.DM_MONO_MEDIUM, 16);
-    private final Color color;
+    private Color color;
     private final String playerName;
+    private String latency = ""; // empty until the server measured it
 
     /**
      *
@@ -48,6 +49,23 @@ public class LobbyPlayerEntity extends BoundEntity<UIScene> {
 
         g.setTextAlign(TextAlignment.RIGHT);
         g.setFill(Color.GREY);
+
+        // render latency
+        g.fillText(latency, x + 225, y + 16);
+    }
+
+    /**
+     * @param color the new color of the given player's skin
+     */
+    public void setColor(Color color) {
+        this.color = color;
+    }
+
+    /**
+     * @param rttMicros the player's round trip time to the server, in microseconds
+     */
+    public void setLatency(int rttMicros) {
+        latency = Math.round(rttMicros / 1000f) + " ms";
     }
 
     @Override
@@ -24,6 +24,7 @@ public class ServerEntryEntity extends DynamicButtonEntity {
 
     private String   serverName;
     private String   serverAddress;
+    private String   serverLoad = ""; // i.e. "3/9" players
     private Runnable onClick;
 
     public volatile boolean hidden = false;
@@ -82,10 +83,15 @@ public class ServerEntryEntity extends DynamicButtonEntity {
         g.setFill(Color.GREY);
         g.setFont(ADDRESS_FONT);
         g.fillText(this.serverAddress, x + 216, y + h / 2);
+
+        // render player count
+        g.setTextAlign(TextAlignment.RIGHT);
+        g.fillText(this.serverLoad, x + w - 12, y + h / 2);
     }
 
     public void setData(JoinGameScene.ServerEntry data) {
         this.serverName = data.name();
         this.serverAddress = data.address();
+        this.serverLoad = data.players() + "/" + data.capacity();
     }
 }
@@ -1,10 +1,10 @@
 package com.logandhillon.typeofwar.entity.ui.component;
 
 import com.logandhillon.typeofwar.engine.GameScene;
+import com.logandhillon.typeofwar.engine.GlyphAtlas;
 import com.logandhillon.typeofwar.entity.core.Clickable;
 import com.logandhillon.typeofwar.resource.Colors;
 import com.logandhillon.typeofwar.resource.Fonts;
-import javafx.geometry.VPos;
 import javafx.scene.canvas.GraphicsContext;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
@@ -35,6 +35,12 @@ public class InputBoxEntity extends Clickable {
     private static final Font INPUT_FONT       = Font.font(Fonts.DM_MONO, INPUT_FONT_SIZE);
     private static final Font LABEL_FONT       = Font.font(Fonts.DM_MONO_MEDIUM, 18);
 
+    // colors are indices into the glyph atlases
+    private static final int        WHITE       = 0;
+    private static final int        PLACEHOLDER = 1;
+    private static final GlyphAtlas INPUT_ATLAS = new GlyphAtlas(INPUT_FONT, Color.WHITE, Color.hsb(0, 0, 1, 0.2));
+    private static final GlyphAtlas LABEL_ATLAS = new GlyphAtlas(LABEL_FONT, Color.WHITE);
+
     private final   float  maxWidth;
     private final   String placeholder;
     private final   String label;
@@ -73,11 +79,8 @@ public class InputBoxEntity extends Clickable {
         g.setFill(Colors.DEFAULT_DARKER);
         g.fillRoundRect(x, y, w, h, CORNER_RADIUS, CORNER_RADIUS);
 
-        g.setTextAlign(TextAlignment.LEFT);
-        g.setTextBaseline(VPos.TOP);
-        g.setFont(LABEL_FONT);
-        g.setFill(Color.WHITE);
-        g.fillText(label, x, y - 31);
+        // the atlases draw from the baseline, but this box is laid out from the top of the text
+        LABEL_ATLAS.drawText(g, label, WHITE, x, y - 31 + LABEL_ATLAS.getAscent(), TextAlignment.LEFT);
 
         // when active, show a blinking cursor for 500 ms every 1000 ms
         if (isActive && System.currentTimeMillis() % 1000 > 500) {
@@ -88,17 +91,24 @@ public class InputBoxEntity extends Clickable {
             g.strokeLine(cursorX, y + MARGIN_Y, cursorX, y + h - MARGIN_Y);
         }
 
-        g.setFont(INPUT_FONT);
         if (input.isEmpty()) {
             // render placeholder
-            g.setFill(Color.hsb(0, 0, 1, 0.2));
-            g.fillText(placeholder, x + MARGIN_X, y + MARGIN_Y, maxWidth);
+            renderText(g, placeholder, PLACEHOLDER, x, y);
         } else {
-            // render input (font is already white)
-            g.fillText(input.toString(), x + MARGIN_X, y + MARGIN_Y, maxWidth);
+            // render input
+            renderText(g, input, WHITE, x, y);
         }
     }
 
+    /**
+     * Renders text inside the box, squeezing the characters closer together if it would be wider than the box.
+     */
+    private void renderText(GraphicsContext g, CharSequence text, int color, float x, float y) {
+        double advance = Math.min(INPUT_ATLAS.getAdvance(), maxWidth / text.length());
+        INPUT_ATLAS.drawText(g, text, 0, text.length(), color, x + MARGIN_X, y + MARGIN_Y + INPUT_ATLAS.getAscent(),
+                             advance);
+    }
+
     @Override
     public void onUpdate(float dt) {
 
@@ -0,0 +1,80 @@
+package com.logandhillon.typeofwar.networking;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An advertisement is what a server multicasts to the local network while it is in its lobby, so players can find it
+ * (and see how full it is) without connecting to it.
+ * <p>
+ * Format: [4-byte magic "TOWS"][1-byte protocol version][2-byte port][1-byte players on team 1][1-byte players on team
+ * 2][1-byte capacity][1-byte length of room name][room name, UTF-8]
+ *
+ * @param version  the protocol version of the server, see {@link GameServer#PROTOCOL_VERSION}
+ * @param room     the name of the server's room
+ * @param port     the port the server listens on
+ * @param team1    the amount of players on team 1, including the host
+ * @param team2    the amount of players on team 2
+ * @param capacity the maximum amount of players, including the host
+ *
+ * @author Logan Dhillon
+ * @see GameServer#startAdvertising()
+ * @see ServerDiscoverer
+ */
+public record Advertisement(int version, String room, int port, int team1, int team2, int capacity) {
+    private static final int MAGIC         = 0x544F5753; // "TOWS"
+    private static final int MAX_ROOM_NAME = 64; // bytes, longer names are cut off
+
+    /**
+     * Encodes this advertisement into the bytes of a datagram.
+     *
+     * @return the encoded advertisement
+     */
+    public byte[] encode() {
+        byte[] name = room.getBytes(StandardCharsets.UTF_8);
+        int length = Math.min(name.length, MAX_ROOM_NAME);
+        while (length < name.length && (name[length] & 0xC0) == 0x80) length--; // don't cut a character in half
+
+        ByteBuffer buf = ByteBuffer.allocate(11 + length);
+        buf.putInt(MAGIC).put((byte)version).putShort((short)port)
+           .put((byte)team1).put((byte)team2).put((byte)capacity)
+           .put((byte)length).put(name, 0, length);
+        return buf.array();
+    }
+
+    /**
+     * Decodes the bytes of a datagram into an advertisement.
+     *
+     * @param data   the datagram's buffer
+     * @param offset where the datagram starts in the buffer
+     * @param length the length of the datagram
+     *
+     * @return the advertisement, or null if the datagram isn't one (i.e. from another service)
+     */
+    public static Advertisement decode(byte[] data, int offset, int length) {
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(data, offset, length);
+            if (buf.getInt() != MAGIC) return null;
+
+            int version = buf.get() & 0xFF;
+            int port = buf.getShort() & 0xFFFF;
+            int team1 = buf.get() & 0xFF;
+            int team2 = buf.get() & 0xFF;
+            int capacity = buf.get() & 0xFF;
+            byte[] name = new byte[buf.get() & 0xFF];
+            buf.get(name);
+
+            return new Advertisement(version, new String(name, StandardCharsets.UTF_8), port, team1, team2, capacity);
+        } catch (BufferUnderflowException e) {
+            return null; // cut short
+        }
+    }
+
+    /**
+     * @return the amount of players in the lobby
+     */
+    public int players() {
+        return team1 + team2;
+    }
+}
@@ -0,0 +1,76 @@
+package com.logandhillon.typeofwar.networking;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * A buffer pool hands out direct {@link ByteBuffer}s for reading from channels, and takes them back once a connection
+ * is done with them, so connecting and disconnecting (or receiving the odd big packet) doesn't allocate new buffers.
+ * <p>
+ * Buffers are grouped into power-of-two size classes, starting at {@link BufferPool#MIN_CAPACITY}. Each class keeps at
+ * most {@link BufferPool#MAX_POOLED} idle buffers; anything released past that is left to the garbage collector.
+ *
+ * @author Logan Dhillon
+ * @see PacketReader
+ */
+public final class BufferPool {
+    /** the smallest buffer this pool hands out */
+    public static final int MIN_CAPACITY = 8 * 1024;
+
+    private static final int MIN_SHIFT  = Integer.numberOfTrailingZeros(MIN_CAPACITY);
+    private static final int CLASSES    = 8; // 8 KiB up to 1 MiB
+    private static final int MAX_POOLED = 16;
+
+    /** the pool that is shared by the server and client */
+    public static final BufferPool SHARED = new BufferPool();
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final ArrayDeque<ByteBuffer>[] idle = new ArrayDeque[CLASSES];
+
+    public BufferPool() {
+        for (int i = 0; i < CLASSES; i++) idle[i] = new ArrayDeque<>(MAX_POOLED);
+    }
+
+    /**
+     * Takes a cleared buffer out of the pool, allocating one if there are none idle.
+     *
+     * @param minCapacity the least amount of bytes the buffer must hold
+     *
+     * @return a buffer with at least the requested capacity, ready to be written to
+     */
+    public ByteBuffer acquire(int minCapacity) {
+        int sizeClass = sizeClass(minCapacity);
+        if (sizeClass >= CLASSES) return ByteBuffer.allocateDirect(minCapacity); // too big to be worth pooling
+
+        ByteBuffer buf;
+        synchronized (idle[sizeClass]) {
+            buf = idle[sizeClass].poll();
+        }
+        return buf != null ? buf : ByteBuffer.allocateDirect(MIN_CAPACITY << sizeClass);
+    }
+
+    /**
+     * Gives a buffer back to the pool. The buffer must not be used by the caller afterwards.
+     *
+     * @param buf the buffer that was previously acquired from this pool
+     */
+    public void release(ByteBuffer buf) {
+        if (buf == null || !buf.isDirect() || Integer.bitCount(buf.capacity()) != 1) return;
+
+        int sizeClass = sizeClass(buf.capacity());
+        if (sizeClass >= CLASSES) return;
+
+        buf.clear();
+        synchronized (idle[sizeClass]) {
+            if (idle[sizeClass].size() < MAX_POOLED) idle[sizeClass].push(buf);
+        }
+    }
+
+    /**
+     * @return the index of the smallest size class that fits the capacity
+     */
+    private static int sizeClass(int capacity) {
+        if (capacity <= MIN_CAPACITY) return 0;
+        return 32 - Integer.numberOfLeadingZeros(capacity - 1) - MIN_SHIFT;
+    }
+}
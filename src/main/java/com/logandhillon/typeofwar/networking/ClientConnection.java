@@ -0,0 +1,289 @@
+package com.logandhillon.typeofwar.networking;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.CancelledKeyException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+
+/**
+ * A client connection is the server-side end of a non-blocking {@link SocketChannel} that is driven by the
+ * {@link GameServer}'s selector loop.
+ * <p>
+ * Incoming bytes are split into packets by a {@link PacketReader}, which hands them to this connection's
+ * {@link PacketHandler} in place, without copying them out of its pooled buffer. Outgoing {@link PacketFrame}s are
+ * placed in a bounded {@link OutboundQueue} and written whenever the channel is writable, so
+ * {@link ClientConnection#send(PacketFrame)} never blocks the calling thread, no matter how slow this client is.
+ * <p>
+ * A client may also have a UDP path for gameplay packets, which the server finds out about when the first datagram
+ * with this client's token arrives (see {@link GameServer}).
+ *
+ * @author Logan Dhillon
+ * @see GameServer
+ */
+public class ClientConnection {
+    private static final Logger LOG = LoggerContext.getContext().getLogger(ClientConnection.class);
+
+    private final SocketChannel              channel;
+    private final SelectionKey               key;
+    private final InetAddress                address;
+    private final PacketReader               reader;
+    private final PacketView.Handler         dispatch; // created once, so reading doesn't allocate a lambda
+    private final OutboundQueue<PacketFrame> outbound;
+    private final LatencyStats               latency = new LatencyStats();
+
+    private          ByteBuffer             writing; // view of the frame that is partially written, if any
+    private volatile ClientRegistry.Session session; // null until the client is registered
+    private          long                   keyPresses; // sequence number of the last press counted from this client
+
+    // the UDP path of this client, only used by the selector thread
+    private long              datagramToken; // 0 if the client has no UDP channel
+    private InetSocketAddress datagramAddress; // where the client's datagrams come from, null until the first one
+    private boolean           receivingDatagrams; // if the client says our datagrams get through
+
+    /** if this connection should be closed once the outbound queue is empty */
+    private volatile boolean closeWhenFlushed;
+    /** if the outbound queue overflowed and this client must be disconnected */
+    private volatile boolean overflowed;
+
+    /**
+     * Wraps an accepted channel that has already been registered with the server's selector.
+     *
+     * @param channel       the non-blocking channel of the client
+     * @param key           the selection key of the channel, used to request write readiness
+     * @param handler       the handler that will receive every packet read from this client
+     * @param queueCapacity the maximum amount of packets that may be waiting to be sent
+     * @param policy        what to do when this client can't keep up with its outbound packets
+     */
+    public ClientConnection(SocketChannel channel, SelectionKey key, PacketHandler handler, int queueCapacity,
+                            OutboundQueue.OverflowPolicy policy) {
+        this.channel = channel;
+        this.key = key;
+        this.address = channel.socket().getInetAddress();
+        this.reader = new PacketReader(BufferPool.SHARED);
+        this.dispatch = packet -> handler.handle(this, packet);
+        this.outbound = new OutboundQueue<>(queueCapacity, policy);
+    }
+
+    /**
+     * Reads everything that is currently available on the channel and hands every complete packet to the handler.
+     *
+     * @return false if the client closed the connection (or sent garbage) and should be dropped
+     *
+     * @throws IOException if the channel fails to read
+     */
+    public boolean read() throws IOException {
+        return reader.read(channel, dispatch);
+    }
+
+    /**
+     * Encodes and queues a packet for this client.
+     *
+     * @param packet the {@link GamePacket} to send.
+     *
+     * @see ClientConnection#send(PacketFrame)
+     */
+    public void send(GamePacket packet) {
+        send(packet.encode());
+    }
+
+    /**
+     * Queues an already-encoded frame for this client, then asks the selector to write it when the channel is ready.
+     * The frame is shared, not copied, so the same frame can be sent to every client.
+     *
+     * @param frame the {@link PacketFrame} to send.
+     */
+    public void send(PacketFrame frame) {
+        LOG.debug("Queueing {} packet for {}", frame.type(), address);
+
+        if (!outbound.offer(frame, frame.type().isGameplay()) && !overflowed) {
+            LOG.warn("Outbound queue for {} overflowed with {} packets waiting, disconnecting slow client",
+                     address, outbound.getDepth());
+            overflowed = true;
+        }
+
+        requestWrite();
+    }
+
+    /**
+     * Builds a new NULL packet using the specified type and sends it.
+     *
+     * @param packetType the packet type to send
+     */
+    public void send(GamePacket.Type packetType) {
+        send(new GamePacket(packetType));
+    }
+
+    /**
+     * Writes as much of the outbound queue as the channel will currently accept. Called by the selector loop when the
+     * channel is writable.
+     *
+     * @throws IOException if the channel fails to write, or if this client overflowed its outbound queue
+     */
+    public void flush() throws IOException {
+        if (overflowed) throw new IOException("outbound queue overflowed");
+
+        while (writing != null || (writing = nextFrame()) != null) {
+            channel.write(writing);
+            if (writing.hasRemaining()) return; // socket buffer is full, wait for the next OP_WRITE
+            writing = null;
+        }
+
+        // stop listening for writes, then check again in case something was queued in-between
+        key.interestOpsAnd(~SelectionKey.OP_WRITE);
+        if (!outbound.isEmpty()) key.interestOpsOr(SelectionKey.OP_WRITE);
+        else if (closeWhenFlushed) close();
+    }
+
+    /**
+     * @return a fresh view of the next queued frame, or null if there is none
+     */
+    private ByteBuffer nextFrame() {
+        PacketFrame frame = outbound.poll();
+        return frame == null ? null : frame.buffer();
+    }
+
+    /**
+     * Marks this channel as interested in writing and wakes the selector so it notices.
+     */
+    private void requestWrite() {
+        try {
+            key.interestOpsOr(SelectionKey.OP_WRITE);
+            key.selector().wakeup();
+        } catch (CancelledKeyException ignored) {
+            // the connection was closed in the meantime, nothing left to write to
+        }
+    }
+
+    /**
+     * Closes the connection once every queued packet has been written, i.e. after sending a denial.
+     */
+    public void closeAfterFlush() {
+        closeWhenFlushed = true;
+        requestWrite();
+    }
+
+    /**
+     * Immediately closes the channel and cancels its selection key, dropping anything still queued.
+     */
+    public void close() {
+        key.cancel();
+        outbound.close();
+        reader.close();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            LOG.error("Failed to close client channel at {}", address, e);
+        }
+    }
+
+    public boolean isOpen() {
+        return channel.isOpen();
+    }
+
+    /**
+     * @return true if this client couldn't keep up with its outbound queue and must be disconnected
+     */
+    public boolean hasOverflowed() {
+        return overflowed;
+    }
+
+    public InetAddress getAddress() {
+        return address;
+    }
+
+    /**
+     * Acknowledges this client's key presses up to a sequence number. Sequence numbers count every key press the client
+     * has sent over this connection, so a press that was already counted (i.e. a duplicate) counts for nothing.
+     *
+     * @param sequence the sequence number of the client's latest key press
+     *
+     * @return how many key presses were not counted yet
+     */
+    public long ackKeyPresses(long sequence) {
+        long presses = sequence - keyPresses;
+        if (presses <= 0) return 0;
+
+        keyPresses = sequence;
+        return presses;
+    }
+
+    /**
+     * @return the sequence number of the last key press counted from this client
+     */
+    public long getAckedKeyPresses() {
+        return keyPresses;
+    }
+
+    /**
+     * @return the round trip times and clock offset of this client, measured by the server's pings
+     */
+    public LatencyStats getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return the registered session of this client, or null if it isn't registered
+     */
+    public ClientRegistry.Session getSession() {
+        return session;
+    }
+
+    public void setSession(ClientRegistry.Session session) {
+        this.session = session;
+    }
+
+    /**
+     * @return the token that this client's datagrams start with, or 0 if it has no UDP channel
+     */
+    public long getDatagramToken() {
+        return datagramToken;
+    }
+
+    public void setDatagramToken(long token) {
+        datagramToken = token;
+    }
+
+    /**
+     * @return where this client's datagrams come from, or null if none have arrived yet
+     */
+    public InetSocketAddress getDatagramAddress() {
+        return datagramAddress;
+    }
+
+    public void setDatagramAddress(InetSocketAddress address) {
+        datagramAddress = address;
+    }
+
+    /**
+     * @return true if this client gets the datagrams sent to it, so gameplay packets don't have to be sent over TCP
+     */
+    public boolean isReceivingDatagrams() {
+        return receivingDatagrams && datagramAddress != null;
+    }
+
+    public void setReceivingDatagrams(boolean receiving) {
+        receivingDatagrams = receiving;
+    }
+
+    /**
+     * @return the outbound queue of this client, i.e. to check its depth and drop counters
+     */
+    public OutboundQueue<PacketFrame> getOutbound() {
+        return outbound;
+    }
+
+    /**
+     * Receives every packet that is read from a {@link ClientConnection}. The {@link PacketView} is only valid until
+     * the handler returns.
+     */
+    @FunctionalInterface
+    public interface PacketHandler {
+        void handle(ClientConnection client, PacketView packet);
+    }
+}
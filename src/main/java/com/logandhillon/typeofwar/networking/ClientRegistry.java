@@ -0,0 +1,169 @@
+package com.logandhillon.typeofwar.networking;
+
+import com.logandhillon.typeofwar.networking.proto.PlayerProto;
+import javafx.scene.paint.Color;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The client registry holds a {@link GameServer}'s registered clients, each as a {@link Session} with an id that stays
+ * the same for as long as the client is connected.
+ * <p>
+ * Every change publishes a new, immutable {@link Snapshot} of the registry (copy-on-write). Reads never lock: any
+ * thread can take the current snapshot and iterate its sessions or teams, and it stays the same no matter what changes
+ * after. Clients join and leave rarely compared to how often they are read (i.e. every server tick), so copying on
+ * change costs far less than locking on read. Changes are made one at a time.
+ * <p>
+ * Every snapshot has a version, which goes up by one with every change. It is the version of the lobby's player list.
+ *
+ * @author Logan Dhillon
+ * @see GameServer
+ */
+public final class ClientRegistry {
+    private final PlayerProto.PlayerData host;
+    private final Map<String, Session>   byName = new ConcurrentHashMap<>();
+
+    private          int      nextId = 1; // only touched while changing
+    private volatile Snapshot snapshot;
+
+    /**
+     * A registered client.
+     *
+     * @param id         the id of this session, unique for as long as the server runs
+     * @param connection the connection of the client
+     * @param name       the player's name
+     * @param color      the player's color
+     * @param team       the player's team (1 or 2)
+     * @param data       the player as it is sent to clients
+     */
+    public record Session(int id, ClientConnection connection, String name, Color color, int team,
+                          PlayerProto.PlayerData data) {}
+
+    /**
+     * An immutable snapshot of the registry.
+     *
+     * @param version  the version of the player list, every change adds one
+     * @param sessions every registered client, in the order they registered
+     * @param team1    the players on team 1, starting with the host
+     * @param team2    the players on team 2
+     */
+    public record Snapshot(long version, List<Session> sessions, List<PlayerProto.PlayerData> team1,
+                           List<PlayerProto.PlayerData> team2) {
+        /**
+         * @param team the team (1 or 2)
+         *
+         * @return the players on that team
+         */
+        public List<PlayerProto.PlayerData> team(int team) {
+            if (team == 1) return team1;
+            if (team == 2) return team2;
+            throw new IllegalArgumentException("Can only get team for 1 or 2.");
+        }
+
+        /**
+         * @return the amount of registered clients, not including the host
+         */
+        public int size() {
+            return sessions.size();
+        }
+    }
+
+    /**
+     * @param host the hosting player, who is always on team 1 but isn't a client
+     */
+    public ClientRegistry(PlayerProto.PlayerData host) {
+        this.host = host;
+        this.snapshot = new Snapshot(0, List.of(), List.of(host), List.of());
+    }
+
+    /**
+     * @return the current snapshot of the registry, safe to read from any thread
+     */
+    public Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @param name a player's name
+     *
+     * @return the session of the registered client that goes by that name, or null if there is none (i.e. the host)
+     */
+    public Session get(String name) {
+        return byName.get(name);
+    }
+
+    /**
+     * @param name a player's name
+     *
+     * @return true if the host or a registered client already goes by that name
+     */
+    public boolean isNameTaken(String name) {
+        return host.getName().equals(name) || byName.containsKey(name);
+    }
+
+    /**
+     * Registers a client.
+     *
+     * @param connection the connection of the client
+     * @param name       the player's name, which must not be taken
+     * @param color      the player's color
+     * @param team       the player's team (1 or 2)
+     *
+     * @return the client's new session
+     *
+     * @throws IllegalStateException if the name is already taken
+     */
+    public synchronized Session register(ClientConnection connection, String name, Color color, int team) {
+        if (isNameTaken(name)) throw new IllegalStateException("Name '" + name + "' is already taken");
+
+        var data = PlayerProto.PlayerData.newBuilder()
+                                         .setName(name)
+                                         .setR((float)color.getRed())
+                                         .setG((float)color.getGreen())
+                                         .setB((float)color.getBlue())
+                                         .setTeam(team)
+                                         .build();
+        var session = new Session(nextId++, connection, name, color, team, data);
+        byName.put(name, session);
+
+        Snapshot old = snapshot;
+        snapshot = new Snapshot(old.version + 1, append(old.sessions, session),
+                                team == 1 ? append(old.team1, data) : old.team1,
+                                team == 1 ? old.team2 : append(old.team2, data));
+        return session;
+    }
+
+    /**
+     * Removes a client's session.
+     *
+     * @param session the session
+     *
+     * @return false if the session wasn't registered (i.e. it was already removed)
+     */
+    public synchronized boolean remove(Session session) {
+        if (!byName.remove(session.name, session)) return false;
+
+        Snapshot old = snapshot;
+        snapshot = new Snapshot(old.version + 1, without(old.sessions, session),
+                                session.team == 1 ? without(old.team1, session.data) : old.team1,
+                                session.team == 1 ? old.team2 : without(old.team2, session.data));
+        return true;
+    }
+
+    private static <T> List<T> append(List<T> list, T element) {
+        var copy = new ArrayList<T>(list.size() + 1);
+        copy.addAll(list);
+        copy.add(element);
+        return Collections.unmodifiableList(copy);
+    }
+
+    private static <T> List<T> without(List<T> list, T element) {
+        var copy = new ArrayList<>(list);
+        copy.remove(element);
+        return Collections.unmodifiableList(copy);
+    }
+}
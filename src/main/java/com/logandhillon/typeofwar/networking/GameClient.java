@@ -2,25 +2,37 @@ package com.logandhillon.typeofwar.networking;
 
 import com.logandhillon.typeofwar.TypeOfWar;
 import com.logandhillon.typeofwar.engine.disk.UserConfigManager;
+import com.logandhillon.typeofwar.engine.typing.Sentence;
 import com.logandhillon.typeofwar.scene.menu.LobbyGameScene;
 import com.logandhillon.typeofwar.scene.TypeOfWarScene;
 import com.logandhillon.typeofwar.networking.proto.EndGameProto;
 import com.logandhillon.typeofwar.networking.proto.GameInitProto;
 import com.logandhillon.typeofwar.networking.proto.PlayerProto;
+import com.logandhillon.typeofwar.resource.WordGen;
 import javafx.application.Platform;
 import javafx.scene.paint.Color;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.LoggerContext;
 
-import java.io.DataInputStream;
 import java.io.IOException;
-import java.net.Socket;
+import java.net.InetSocketAddress;
+import java.net.PortUnreachableException;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SocketChannel;
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A game client handles all outgoing communications to the {@link GameServer} via a valid network connection.
  * <p>
  * The client connects to a server using an {@link java.net.InetAddress} and communicates using {@link GamePacket}s.
+ * Gameplay packets also go over UDP if they get through, see {@link GameServer} for how that is set up.
  *
  * @author Logan Dhillon
  * @see GameServer
@@ -28,21 +40,48 @@ import java.util.List;
 public class GameClient {
     private static final Logger LOG = LoggerContext.getContext().getLogger(GameClient.class);
 
+    /** how far behind the server the rope is shown (in nanoseconds): 3 snapshots, to cover the network's jitter */
+    public static final long SNAPSHOT_DELAY = TimeUnit.SECONDS.toNanos(3) / GameServer.TICK_RATE;
+
+    /** how often the key press count is repeated over UDP, so the server learns (and keeps) where we are */
+    private static final long DATAGRAM_PROBE   = TimeUnit.MILLISECONDS.toNanos(250);
+    /** how long without a datagram from the server until we go back to getting gameplay packets over TCP */
+    private static final long DATAGRAM_TIMEOUT = TimeUnit.SECONDS.toNanos(1);
+
     private final String    host;
     private final int       port;
     private final TypeOfWar game;
     private final int       team;
 
-    private Socket          socket;
-    private DataInputStream in;
+    private SocketChannel   channel;
+    private PacketReader    in;
     private PacketWriter    out;
+    private DatagramChannel datagram; // null if UDP couldn't be opened, i.e. TCP only
+    private long            datagramToken;
+
+    // the UDP path, only used by the game loop (apart from lastDatagram)
+    private final    ByteBuffer datagramOut  = ByteBuffer.allocate(GameServer.MAX_DATAGRAM);
+    private volatile long       lastDatagram = System.nanoTime() - DATAGRAM_TIMEOUT; // as if it was too long ago
+    private          long       lastProbe;
+    private          boolean    reportedDatagrams; // if we last told the server that its datagrams get through
 
-    private List<PlayerProto.PlayerData> team1;
-    private List<PlayerProto.PlayerData> team2;
+    // the lobby's player list, by name in the order they joined; only changed by the reader thread
+    private final Map<String, PlayerProto.PlayerData> players      = new LinkedHashMap<>();
+    private       long                                lobbyVersion = -1; // -1 while waiting for the whole list
+    private       LobbyGameScene                      lobby; // null until the whole list first arrived
 
     /** if this client is registered with a remote server */
     private boolean isRegistered;
 
+    // the server's latest estimates of our latency, and every player's round trip time
+    private volatile long                  roundTrip = -1;
+    private volatile long                  clockOffset;
+    private volatile PlayerProto.Latencies latencies = PlayerProto.Latencies.getDefaultInstance();
+
+    /** sequence numbers of the last key press counted by this client, and of the last one sent to the server */
+    private volatile long keyPresses;
+    private volatile long sentKeyPresses;
+
     /**
      * Sets up a new client, does not connect to the server.
      *
@@ -68,11 +107,16 @@ public class GameClient {
      */
     public void connect() throws IOException {
         LOG.info("Connecting to server at {}:{}...", host, port);
-        socket = new Socket(host, port);
+        InetSocketAddress address = new InetSocketAddress(host, port);
+        if (address.isUnresolved()) throw new UnknownHostException(host);
+
+        channel = SocketChannel.open(address);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        openDatagram(address);
 
-        // setup remote IO
-        in = new DataInputStream(socket.getInputStream());
-        out = new PacketWriter(socket.getOutputStream());
+        // setup remote IO; frames are read into a pooled buffer and written straight from their shared buffers
+        in = new PacketReader(BufferPool.SHARED);
+        out = new PacketWriter(channel);
 
         String name = TypeOfWar.getUserConfig().getName();
         Color color = UserConfigManager.parseColor(TypeOfWar.getUserConfig());
@@ -87,48 +131,96 @@ public class GameClient {
                                       .setR((float)color.getRed())
                                       .setG((float)color.getGreen())
                                       .setB((float)color.getBlue())
+                                      .setUdpToken(datagramToken)
                                       .build()));
 
         new Thread(this::readLoop, "Client-ReadLoop").start();
+        if (datagram != null) new Thread(this::datagramLoop, "Client-DatagramLoop").start();
+    }
+
+    /**
+     * Opens a UDP channel to the server, on the same address and port as the TCP one. If that fails, this client only
+     * uses TCP.
+     */
+    private void openDatagram(InetSocketAddress address) {
+        try {
+            datagram = DatagramChannel.open();
+            datagram.connect(address);
+            datagramToken = new SecureRandom().nextLong() | 1; // never 0, that means TCP only
+        } catch (IOException e) {
+            LOG.warn("Could not open UDP to server, gameplay packets will only use TCP: {}", e.getMessage());
+            try {
+                if (datagram != null) datagram.close();
+            } catch (IOException ignored) {}
+            datagram = null;
+            datagramToken = 0;
+        }
     }
 
     /**
-     * The listener thread of the client, handles incoming communication from the server, deserializes it, and sends it
-     * to {@link GameClient#parseResponse(GamePacket)}.
+     * The listener thread of the client, handles incoming communication from the server and hands every packet to
+     * {@link GameClient#parseResponse(PacketView)}.
      *
      * @apiNote This should be run in a separate thread, as it is a blocking action.
      */
     private void readLoop() {
+        PacketView.Handler handler = this::parseResponse;
         try {
-            while (true) {
-                int length;
-                try {
-                    length = in.readInt();
-                } catch (IOException e) {
-                    LOG.warn("Failed to read length byte from server packet");
-                    break; // client disconnected or stream closed
-                }
-                if (length <= 0) {
-                    LOG.warn("Received invalid packet length {} from SERVER", length);
-                    break;
-                }
-                byte[] data = new byte[length];
-                in.readFully(data);
-                parseResponse(GamePacket.deserialize(data));
+            while (in.read(channel, handler)) {
+                // each read blocks until the server sends something, until it disconnects or the channel is closed
             }
-        } catch (IOException ignored) {
+        } catch (IOException e) {
+            LOG.warn("Stopped reading from server: {}", e.getMessage());
+        } finally {
+            in.close(); // only this thread reads, so only this thread gives the buffer back
         }
     }
 
     /**
-     * Handles an incoming packet
+     * The UDP listener thread of the client, hands every gameplay datagram from the server to
+     * {@link GameClient#parseResponse(PacketView)}, just like packets read over TCP.
      *
-     * @param packet the deserialized packet from the server
+     * @apiNote This should be run in a separate thread, as it is a blocking action.
      */
-    private void parseResponse(GamePacket packet) throws IOException {
-        if (packet == null) return;
+    private void datagramLoop() {
+        ByteBuffer buf = ByteBuffer.allocateDirect(GameServer.MAX_DATAGRAM);
+        PacketView view = new PacketView();
+        GamePacket.Type[] types = GamePacket.Type.values();
+
+        while (datagram.isOpen()) {
+            try {
+                buf.clear();
+                datagram.read(buf);
+                buf.flip();
+                if (!buf.hasRemaining()) continue;
+
+                int type = buf.get();
+                if (type < 0 || type >= types.length || !types[type].isGameplay()) continue;
+                if (!types[type].hasValidLength(buf.remaining())) continue;
+
+                lastDatagram = System.nanoTime();
+                view.set(types[type], buf, buf.position(), buf.remaining());
+                parseResponse(view);
+            } catch (PortUnreachableException e) {
+                // the server isn't listening for UDP, so everything keeps going over TCP
+            } catch (IOException e) {
+                if (datagram.isOpen()) LOG.warn("Stopped reading datagrams from server: {}", e.getMessage());
+                return;
+            }
+        }
+    }
 
+    /**
+     * Handles an incoming packet
+     *
+     * @param packet the packet from the server, only valid until this returns
+     */
+    private void parseResponse(PacketView packet) throws IOException {
         LOG.debug("Received {} from SERVER", packet.type());
+        if (!packet.type().hasValidLength(packet.length())) {
+            LOG.warn("Ignoring {} with a malformed {}-byte payload", packet.type(), packet.length());
+            return;
+        }
 
         switch (packet.type()) {
             case SRV_UPDATE_PLAYERLIST -> {
@@ -137,43 +229,132 @@ public class GameClient {
                     isRegistered = true;
                 }
 
-                var data = PlayerProto.Lobby.parseFrom(packet.payload());
-                this.team1 = data.getTeam1List();
-                this.team2 = data.getTeam2List();
+                // the whole player list, which every change after it builds on
+                var data = packet.parse(PlayerProto.Lobby.parser());
+                List<PlayerProto.PlayerData> list;
+                synchronized (players) {
+                    players.clear();
+                    for (var p: data.getTeam1List()) players.put(p.getName(), p.toBuilder().setTeam(1).build());
+                    for (var p: data.getTeam2List()) players.put(p.getName(), p.toBuilder().setTeam(2).build());
+                    list = List.copyOf(players.values());
+                }
+                lobbyVersion = data.getVersion();
 
-                var lobby = new LobbyGameScene(game, data.getName(), false);
-                lobby.clearPlayers();
+                // if the lobby is already shown (i.e. after a missed change), replace its players in place
+                if (lobby != null) {
+                    var scene = lobby;
+                    scene.post(() -> {
+                        scene.clearPlayers();
+                        for (var p: list) scene.addPlayer(p.getName(), colorOf(p), p.getTeam());
+                    });
+                    return;
+                }
 
-                for (var p: data.getTeam1List())
-                    lobby.addPlayer(p.getName(), Color.color(p.getR(), p.getG(), p.getB()), 1);
-                for (var p: data.getTeam2List())
-                    lobby.addPlayer(p.getName(), Color.color(p.getR(), p.getG(), p.getB()), 2);
+                var scene = new LobbyGameScene(game, data.getName(), false);
+                for (var p: list) scene.addPlayer(p.getName(), colorOf(p), p.getTeam());
+                lobby = scene;
 
                 game.setInMenu(true);
 
                 // run setScene on the FX thread
-                Platform.runLater(() -> game.setScene(lobby));
+                Platform.runLater(() -> game.setScene(scene));
+            }
+            case SRV_LOBBY_DELTA -> {
+                var delta = packet.parse(PlayerProto.LobbyDelta.parser());
+                if (lobbyVersion < 0 || delta.getVersion() <= lobbyVersion) return; // the list we have includes it
+
+                // every change builds on the one before it, so one that was missed can't be made up for
+                if (delta.getVersion() != lobbyVersion + 1) {
+                    LOG.warn("Missed changes to the player list (at version {}, got {}), asking for the whole list",
+                             lobbyVersion, delta.getVersion());
+                    lobbyVersion = -1;
+                    sendServer(new GamePacket(GamePacket.Type.CLT_REQ_LOBBY));
+                    return;
+                }
+                lobbyVersion = delta.getVersion();
+
+                var scene = lobby;
+                switch (delta.getChangeCase()) {
+                    case ADDED, UPDATED -> {
+                        var p = delta.hasAdded() ? delta.getAdded() : delta.getUpdated();
+                        synchronized (players) {
+                            players.put(p.getName(), p);
+                        }
+                        if (scene != null) scene.post(() -> scene.updatePlayer(p.getName(), colorOf(p), p.getTeam()));
+                    }
+                    case REMOVED -> {
+                        String name = delta.getRemoved();
+                        synchronized (players) {
+                            players.remove(name);
+                        }
+                        if (scene != null) scene.post(() -> scene.removePlayer(name));
+                    }
+                }
             }
             case SRV_DENY_CONN__USERNAME_TAKEN, SRV_DENY_CONN__FULL -> {
-                LOG.error("Failed to join: {}", packet.type());
+                GamePacket.Type reason = packet.type(); // the view is reused once this returns
+                LOG.error("Failed to join: {}", reason);
                 Platform.runLater(() -> game.showAlert(
                         "Failed to join server",
-                        "Could not " + host + ": " + packet.type().name()));
+                        "Could not " + host + ": " + reason.name()));
                 this.close();
             }
             case SRV_GAME_STARTING -> {
-                GameInitProto.GameData gd = GameInitProto.GameData.parseFrom(packet.payload());
-                game.startGame(gd.getSentence(), gd.getMultiplier());
+                long arrival = System.nanoTime();
+                GameInitProto.GameData gd = packet.parse(GameInitProto.GameData.parser());
+
+                Sentence sentence;
+                if (gd.hasGenerated()) {
+                    // the server only sent how to generate the sentence, so generate the exact same one here
+                    var generated = gd.getGenerated();
+                    try {
+                        sentence = WordGen.generateSentence(
+                                generated.getWordList(), generated.getSeed(), generated.getLength());
+                    } catch (IOException e) {
+                        LOG.fatal("Could not generate sentence from list '{}'", generated.getWordList(), e);
+                        return;
+                    }
+                } else {
+                    sentence = Sentence.of(gd.getSentence());
+                }
+
+                // the go time is on the server's clock, so move it onto ours. until the server has measured our clock
+                // offset, just count from when the packet arrived (i.e. a network delay late)
+                long goTime = roundTrip >= 0 ? gd.getGoTime() + clockOffset : arrival + GameServer.START_DELAY;
+                game.startGame(sentence, gd.getMultiplier(), goTime);
             }
-            case SRV_KEY_PRESS -> {
+            case SRV_ROPE_SNAPSHOT -> {
+                // snapshots keep coming until the server leaves the match, so there's nothing to warn about here
                 TypeOfWarScene scene = game.getActiveScene(TypeOfWarScene.class);
-                if (scene == null) {
-                    LOG.warn("Got a key press signal, but was not in TypeOfWarScene. Ignoring");
-                    return;
-                }
+                if (scene == null) return;
+
+                // payload is four longs: server time, total key presses for team 1, then team 2, then our last press
+                // they include. they are absolute, so a late packet changes nothing and a missed one is made up for
+                long arrival = System.nanoTime();
+                long time = packet.getLong(0);
+                long team1 = packet.getLong(8);
+                long team2 = packet.getLong(16);
+                long ack = packet.getLong(24);
+                scene.post(() -> scene.getRopeModel().sync(time, team1, team2, ack, arrival));
+            }
+            case SRV_PING -> {
+                long received = System.nanoTime();
+                roundTrip = packet.getLong(8);
+                clockOffset = packet.getLong(16);
+
+                // answer straight away, the server measures the round trip from this
+                sendServer(new GamePacket(GamePacket.Type.CLT_PONG, ByteBuffer.allocate(24)
+                                                                              .putLong(packet.getLong(0))
+                                                                              .putLong(received)
+                                                                              .putLong(System.nanoTime())
+                                                                              .array()));
+            }
+            case SRV_LATENCIES -> {
+                PlayerProto.Latencies list = packet.parse(PlayerProto.Latencies.parser());
+                latencies = list;
 
-                // team1 = if the team (that is the first-byte of the payload) is one
-                scene.moveRope((packet.payload()[0] & 0xFF) == 1);
+                var lobby = game.getActiveScene(LobbyGameScene.class);
+                if (lobby != null) lobby.post(() -> lobby.setLatencies(list));
             }
             case SRV_REQ_END_GAME_STATS -> {
                 TypeOfWarScene scene = game.getActiveScene(TypeOfWarScene.class);
@@ -181,33 +362,37 @@ public class GameClient {
                     LOG.warn("Was requested end game stats, but was not in TypeOfWarScene. Ignoring");
                     return;
                 }
-                var stats = scene.getStats();
-                Color color = UserConfigManager.parseColor(TypeOfWar.getUserConfig());
-
-                // send the stats as a protobuf :)
-                sendServer(new GamePacket(
-                        GamePacket.Type.CLT_END_GAME_STATS,
-                        EndGameProto.PlayerStats.newBuilder()
-                                                .setPlayerName(TypeOfWar.getUserConfig().getName())
-                                                .setTeam(team)
-                                                .setR((float)color.getRed())
-                                                .setG((float)color.getGreen())
-                                                .setB((float)color.getBlue())
-                                                .setWpm(stats.getWpm())
-                                                .setAccuracy(stats.getAccuracy())
-                                                .setWords(stats.getCorrectWords())
-                                                .build()));
+
+                // the stats are the game loop's, so read them there
+                scene.post(() -> {
+                    var stats = scene.getStats();
+                    Color color = UserConfigManager.parseColor(TypeOfWar.getUserConfig());
+
+                    // send the stats as a protobuf :)
+                    sendServer(new GamePacket(
+                            GamePacket.Type.CLT_END_GAME_STATS,
+                            EndGameProto.PlayerStats.newBuilder()
+                                                    .setPlayerName(TypeOfWar.getUserConfig().getName())
+                                                    .setTeam(team)
+                                                    .setR((float)color.getRed())
+                                                    .setG((float)color.getGreen())
+                                                    .setB((float)color.getBlue())
+                                                    .setWpm(stats.getWpm())
+                                                    .setAccuracy(stats.getAccuracy())
+                                                    .setWords(stats.getCorrectWords())
+                                                    .build()));
+                });
             }
 
             case SRV_END_GAME -> {
-                var stats = EndGameProto.AllStats.parseFrom(packet.payload());
+                var stats = packet.parse(EndGameProto.AllStats.parser());
                 Platform.runLater(() -> game.showEndGameScreen(stats));
             }
         }
     }
 
     /**
-     * Sends a packet to the connected server.
+     * Sends a packet to the connected server. The packet is only queued, so this never blocks on the network.
      *
      * @param pkt the packet to send
      *
@@ -219,15 +404,107 @@ public class GameClient {
         out.send(pkt);
     }
 
+    /**
+     * Counts a correct key press of the player. It is sent to the server on the next
+     * {@link GameClient#flushKeyPresses()}, along with any others since the last one.
+     *
+     * @param sequence the sequence number of the key press, one more than the last one
+     */
+    public void recordKeyPress(long sequence) {
+        keyPresses = sequence;
+    }
+
+    /**
+     * Sends the sequence number of the last counted key press to the server, if it changed since the last time. Since
+     * the server counts every press up to that number, one packet covers all the presses since the last one, and a lost
+     * or repeated packet is made up for by the next. This is called once per frame by the game loop.
+     * <p>
+     * With UDP, the count is sent as a datagram, and repeated every now and then so the server learns where to send its
+     * own datagrams. It also goes over TCP until the server's datagrams get through, and whenever that changes, so the
+     * server knows whether it still has to send gameplay packets over TCP.
+     */
+    public void flushKeyPresses() {
+        long sequence = keyPresses;
+        long now = System.nanoTime();
+        boolean receiving = now - lastDatagram < DATAGRAM_TIMEOUT;
+        boolean changed = sequence != sentKeyPresses;
+        sentKeyPresses = sequence;
+
+        if (datagram != null && (changed || now - lastProbe >= DATAGRAM_PROBE)) {
+            lastProbe = now;
+            datagramOut.clear();
+            datagramOut.putLong(datagramToken).put((byte)GamePacket.Type.CLT_KEY_PRESS.ordinal())
+                       .putLong(sequence).put((byte)(receiving ? 1 : 0))
+                       .flip();
+            try {
+                datagram.write(datagramOut);
+            } catch (IOException e) {
+                LOG.debug("Failed to send datagram to server: {}", e.getMessage());
+            }
+        }
+
+        if ((changed && !receiving) || receiving != reportedDatagrams) {
+            reportedDatagrams = receiving;
+            sendServer(new GamePacket(GamePacket.Type.CLT_KEY_PRESS, ByteBuffer.allocate(9)
+                                                                               .putLong(sequence)
+                                                                               .put((byte)(receiving ? 1 : 0))
+                                                                               .array()));
+        }
+    }
+
+    /**
+     * Drops key presses that were counted but never sent (i.e. in the last frame of a match), so they aren't counted
+     * in the next match.
+     *
+     * @return the sequence number of the last key press sent to the server, to count the next match's presses from
+     */
+    public long resetKeyPresses() {
+        long sequence = sentKeyPresses;
+        keyPresses = sequence;
+        return sequence;
+    }
+
+    /**
+     * @return the server's latest estimate of this client's median round trip time (in nanoseconds), or -1 if it has
+     * none yet
+     */
+    public long getRoundTrip() {
+        return roundTrip;
+    }
+
+    /**
+     * @return the server's latest estimate of how far ahead this client's {@link System#nanoTime()} is of the server's
+     * (negative if it is behind)
+     */
+    public long getClockOffset() {
+        return clockOffset;
+    }
+
+    /**
+     * @return the round trip time of every player that the server has measured, as of the last second
+     */
+    public PlayerProto.Latencies getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * @return the team this client's player is on (1 or 2)
+     */
+    public int getPlayerTeam() {
+        return team;
+    }
+
     /**
      * Terminates the active connection with the server
      *
      * @throws IOException if the socket fails to close
      */
     public void close() throws IOException {
-        if (socket != null) {
+        if (out != null) out.close(); // stops the writer thread
+        if (datagram != null) datagram.close(); // stops the datagram thread
+        if (channel != null) {
             LOG.info("Closing connection to server");
-            socket.close();
+            channel.close();
         }
     }
 
@@ -241,9 +518,14 @@ public class GameClient {
      * @throws IllegalArgumentException if you tried to get an invalid team number
      */
     public List<PlayerProto.PlayerData> getTeam(int team) {
-        if (team == 1) return team1;
-        if (team == 2) return team2;
+        if (team != 1 && team != 2) throw new IllegalArgumentException("Can only get team for 1 or 2.");
+
+        synchronized (players) {
+            return players.values().stream().filter(p -> p.getTeam() == team).toList();
+        }
+    }
 
-        throw new IllegalArgumentException("Can only get team for 1 or 2.");
+    private static Color colorOf(PlayerProto.PlayerData p) {
+        return Color.color(p.getR(), p.getG(), p.getB());
     }
 }
\ No newline at end of file
@@ -1,13 +1,13 @@
 package com.logandhillon.typeofwar.networking;
 
 import com.google.protobuf.Message;
-import org.apache.logging.log4j.Logger;
-import org.apache.logging.log4j.core.LoggerContext;
 
 import java.nio.charset.StandardCharsets;
 
 /**
  * A packet to send between the server or client that contains game-related networking data.
+ * <p>
+ * Received packets are not turned back into {@link GamePacket}s; they are read in place as {@link PacketView}s.
  *
  * @param type    the {@link Type} of packet to send
  * @param payload the raw content of the packet
@@ -15,9 +15,7 @@ import java.nio.charset.StandardCharsets;
  * @author Logan Dhillon
  */
 public record GamePacket(Type type, byte[] payload) {
-    private static final Logger LOG   = LoggerContext.getContext().getLogger(GamePacket.class);
-    private static final char   US    = (char)31; // unit separator byte
-    private static final Type[] TYPES = Type.values();
+    private static final char US = (char)31; // unit separator byte
 
     /**
      * Creates a packet with a null payload.
@@ -42,80 +40,78 @@ public record GamePacket(Type type, byte[] payload) {
     public enum Type {
         // server-side types
         SRV_UPDATE_PLAYERLIST, SRV_DENY_CONN__FULL, SRV_DENY_CONN__USERNAME_TAKEN, // used for managing connections
+        SRV_LOBBY_DELTA, // a single change to the player list, sent instead of the whole list once registered
         SRV_GAME_STARTING, // announces that the game is starting
         SRV_UNEXPECTED, // generic error for if the server wasn't expecting something (e.g. not ready for a request)
         /**
-         * send on correct key pressed<br> the payload of this packet should be 1 byte: your team number
+         * a snapshot of the rope, sent every server tick during a match<br> the payload of this packet is 32 bytes:
+         * when the snapshot was taken (nanoseconds since the match started), the total amount of correct key presses
+         * for team 1, then team 2, since the match started, then the sequence number of the recipient's last key press
+         * that those totals include (each a long)
          */
-        SRV_KEY_PRESS,
+        SRV_ROPE_SNAPSHOT,
         SRV_REQ_END_GAME_STATS, // asks clients for all end games
         SRV_END_GAME, // actually end the game
+        /**
+         * sent to every client once a second<br> the payload of this packet is 24 bytes: when it was sent (the server's
+         * {@link System#nanoTime()}), then the server's latest estimate of the recipient's round trip time (-1 if it
+         * has none yet), then of how far ahead the recipient's clock is (each a long, in nanoseconds)
+         */
+        SRV_PING,
+        SRV_LATENCIES, // every player's round trip time, after every ping
 
         // client-side types
         CLT_REQ_CONN, // used to request registration upon joining a server
-        CLT_KEY_PRESS, // tell the srv a key was pressed; do not incl. any payload
+        CLT_REQ_LOBBY, // asks for the whole player list again, i.e. after missing a change to it
+        /**
+         * tells the server keys were pressed<br> the payload of this packet is 9 bytes: the sequence number of the last
+         * key press (a long, counting from 1), then 1 if the client gets the server's datagrams, otherwise 0
+         */
+        CLT_KEY_PRESS,
         CLT_END_GAME_STATS, // provides the SRV with the end game stats upon request
-    }
-
-    /**
-     * Turns this packet into a length-prefixed byte array that can be sent.
-     * <p>
-     * Format: [4-byte payload length][1-byte type][payload bytes]
-     *
-     * @return the serialized byte array.
-     */
-    public byte[] serialize() {
-        int totalLength = 4 + 1 + payload.length; // 4 bytes for length, 1 for type
-        byte[] out = new byte[totalLength];
-
-        // write length of the payload (1 byte type + payload)
-        int payloadLength = 1 + payload.length;
-        out[0] = (byte)((payloadLength >> 24) & 0xFF);
-        out[1] = (byte)((payloadLength >> 16) & 0xFF);
-        out[2] = (byte)((payloadLength >> 8) & 0xFF);
-        out[3] = (byte)(payloadLength & 0xFF);
-
-        // write type
-        out[4] = (byte)type.ordinal();
+        /**
+         * answers a {@code SRV_PING}<br> the payload of this packet is 24 bytes: the ping's timestamp, then when the
+         * client received it, then when the client answered it (each a long, on the client's {@link System#nanoTime()})
+         */
+        CLT_PONG;
 
-        // write payload
-        System.arraycopy(payload, 0, out, 5, payload.length);
+        /**
+         * Gameplay packets are frequent, latency-sensitive updates. When a connection falls behind, these are the
+         * packets that may be dropped from its {@link OutboundQueue} to make room; every other packet must arrive.
+         * <p>
+         * Every gameplay packet is a complete, sequence-numbered state rather than a change, so a lost, repeated or
+         * late one is harmless. That is why these (and only these) may also be sent as UDP datagrams.
+         *
+         * @return true if this is a gameplay packet
+         */
+        public boolean isGameplay() {
+            return this == SRV_ROPE_SNAPSHOT || this == CLT_KEY_PRESS;
+        }
 
-        return out;
+        /**
+         * Packets with a fixed layout are read straight out of their payload, so their length must be checked before
+         * anything is read from them. Packets without one (i.e. protobufs) are checked when they are parsed.
+         *
+         * @param length the length of a payload of this type
+         *
+         * @return false if this type has a fixed layout, and the payload isn't exactly as long as it
+         */
+        public boolean hasValidLength(int length) {
+            return switch (this) {
+                case SRV_ROPE_SNAPSHOT -> length == 32;
+                case SRV_PING, CLT_PONG -> length == 24;
+                case CLT_KEY_PRESS -> length == 9;
+                default -> true;
+            };
+        }
     }
 
     /**
-     * Deserializes a length-prefixed byte array to a {@link GamePacket}.
-     *
-     * @param data the raw packet content as a byte array
+     * Turns this packet into a {@link PacketFrame} that can be sent.
      *
-     * @return the deserialized game packet
+     * @return the encoded frame
      */
-    public static GamePacket deserialize(byte[] data) {
-        if (data.length < 5) {
-            LOG.warn("Failed to deserialize packet: not enough data");
-            return null;
-        }
-
-        // read payload length
-        int payloadLength = ((data[0] & 0xFF) << 24) |
-                            ((data[1] & 0xFF) << 16) |
-                            ((data[2] & 0xFF) << 8) |
-                            (data[3] & 0xFF);
-
-        if (payloadLength != data.length - 4) {
-            LOG.warn("Failed to deserialize packet: length mismatch");
-            return null;
-        }
-
-        int typeIndex = data[4];
-        if (typeIndex < 0 || typeIndex >= TYPES.length) {
-            LOG.warn("Failed to deserialize packet, TYPE {} does not exist", typeIndex);
-            return null;
-        }
-
-        byte[] payload = new byte[payloadLength - 1];
-        System.arraycopy(data, 5, payload, 0, payload.length);
-        return new GamePacket(TYPES[typeIndex], payload);
+    public PacketFrame encode() {
+        return PacketFrame.encode(this);
     }
 }
@@ -1,7 +1,10 @@
 package com.logandhillon.typeofwar.networking;
 
+import com.google.protobuf.Message;
 import com.logandhillon.typeofwar.TypeOfWar;
+import com.logandhillon.typeofwar.engine.RopeModel;
 import com.logandhillon.typeofwar.engine.disk.UserConfigManager;
+import com.logandhillon.typeofwar.entity.CountdownEntity;
 import com.logandhillon.typeofwar.scene.menu.LobbyGameScene;
 import com.logandhillon.typeofwar.scene.TypeOfWarScene;
 import com.logandhillon.typeofwar.networking.proto.EndGameProto;
@@ -11,65 +14,146 @@ import javafx.scene.paint.Color;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.LoggerContext;
 
-import java.io.DataInputStream;
 import java.io.IOException;
 import java.net.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
 import java.util.*;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * A game server handles all outgoing communications to {@link GameClient}s via a valid network connection.
  * <p>
- * The server allows multiple clients to connect (using multi-threading to handle each connection independently) and
- * communicates using {@link GamePacket}s.
+ * The server allows multiple clients to connect (using a single non-blocking {@link Selector} loop that accepts, reads
+ * and writes for every connection) and communicates using {@link GamePacket}s.
+ * <p>
+ * Gameplay packets (see {@link GamePacket.Type#isGameplay()}) also have a UDP fast path on the same port, so a lost TCP
+ * segment can't hold them up. A client that wants it sends a token in its {@code CLT_REQ_CONN}, and starts its
+ * datagrams with that token. Once one arrives, the server knows where to send the client's datagrams; once the client
+ * says they get through, its gameplay packets stop being sent over TCP. If UDP is blocked either way, nothing changes
+ * and everything keeps going over TCP.
+ * <p>
+ * Datagram format: [8-byte token (client to server only)][1-byte type][payload bytes]
  *
  * @author Logan Dhillon
  * @see GameClient
+ * @see ClientConnection
  */
 public class GameServer implements Runnable {
-    private static final Logger LOG             = LoggerContext.getContext().getLogger(GameServer.class);
-    public static final  int    DEFAULT_PORT    = 20670; // default port for game
-    public static final  int    ADVERTISE_PORT  = 20671; // for UDP broadcast discovery
-    private static final int    MAX_CONNECTIONS = 8;
-
-    private volatile boolean      running; // if the server is running
-    private final    TypeOfWar    game;
-    private          ServerSocket socket;
-    private          Thread       advertiser;
+    private static final Logger LOG                     = LoggerContext.getContext().getLogger(GameServer.class);
+    public static final  int    DEFAULT_PORT            = 20670; // default port for game
+    public static final  int    ADVERTISE_PORT          = 20671; // for UDP multicast discovery
+    public static final  String ADVERTISE_GROUP         = "239.255.20.67"; // multicast group, local network scope
+    public static final  int    PROTOCOL_VERSION        = 2; // bump whenever packets change in an incompatible way
+    public static final  int    DEFAULT_MAX_CONNECTIONS = 8;
+    public static final  int    DEFAULT_QUEUE_CAPACITY  = 256; // max packets waiting for a single client
+    public static final  int    TICK_RATE               = 30; // rope updates per second
+    private static final long   TICK_NANOS              = TimeUnit.SECONDS.toNanos(1) / TICK_RATE;
+    public static final  int    MAX_DATAGRAM            = 64; // gameplay packets are tiny, anything bigger is ignored
+    /** from SRV_GAME_STARTING until typing starts: time for every client to build its scene, then the countdown */
+    public static final  long   START_DELAY             = TimeUnit.MILLISECONDS.toNanos(500) + CountdownEntity.LENGTH;
+
+    private volatile boolean                      running; // if the server is running
+    private final    TypeOfWar                    game;
+    private final    int                          maxConnections;
+    private final    int                          queueCapacity;
+    private final    OutboundQueue.OverflowPolicy overflowPolicy;
+    private          ServerSocketChannel          socket;
+    private          DatagramChannel              datagram; // null if UDP couldn't be opened, i.e. TCP only
+    private          Selector                     selector;
+    private          ScheduledExecutorService     advertiser;
+    private          MulticastSocket              advertiseSocket;
+    private volatile Advertisement                advertised; // what is being advertised, null until the lobby is
+    private volatile byte[]                       advertisement; // the encoded advertisement, cached until it changes
 
     /** the list of ALL active client connections, including unregistered ones. */
-    private final Set<Socket> clients = Collections.synchronizedSet(new HashSet<>());
+    private final Set<ClientConnection> clients = ConcurrentHashMap.newKeySet();
+
+    /** all REGISTERED clients and their players, readable from any thread without locking */
+    private final ClientRegistry registry;
+
+    /** registered clients that have a UDP channel, by their datagram token */
+    private final HashMap<Long, ClientConnection> datagramClients = new HashMap<>();
 
-    /** list of all REGISTERED client connections; maps socket to name */
-    private final HashMap<Socket, ConnectionDetails> registeredClients = new HashMap<>();
+    // datagrams are read and written one at a time by the selector thread, so one buffer each will do
+    private final ByteBuffer datagramIn   = ByteBuffer.allocateDirect(MAX_DATAGRAM);
+    private final ByteBuffer datagramOut  = ByteBuffer.allocateDirect(MAX_DATAGRAM);
+    private final PacketView datagramView = new PacketView();
 
     /**
      * used to retrieve all stats in end game and display them on {@link com.logandhillon.typeofwar.scene.EndGameScene}
      */
-    private final HashMap<Socket, EndGameProto.PlayerStats> endGameStats = new HashMap<>();
+    private final Map<Integer, EndGameProto.PlayerStats> endGameStats = new ConcurrentHashMap<>(); // by session id
 
-    private record ConnectionDetails(String name, Color color, int team, PacketWriter out) {}
+    /** the rope of the current match, its snapshots are sent as {@link GamePacket.Type#SRV_ROPE_SNAPSHOT} */
+    private volatile RopeModel rope      = new RopeModel(1);
+    private volatile long      ropeStart = System.nanoTime(); // when the rope was started, snapshots count from it
+
+    private long ticks; // ticks since the server started, only touched by the selector thread
 
     public GameServer(TypeOfWar game) {
+        this(game, DEFAULT_MAX_CONNECTIONS, DEFAULT_QUEUE_CAPACITY, OutboundQueue.OverflowPolicy.DROP_OLDEST);
+    }
+
+    /**
+     * @param game           the game this server is hosted by
+     * @param maxConnections the maximum amount of registered clients, not including the host
+     * @param queueCapacity  the maximum amount of packets that may be waiting to be sent to a single client
+     * @param overflowPolicy what to do with a client that can't keep up with its outbound packets
+     */
+    public GameServer(TypeOfWar game, int maxConnections, int queueCapacity,
+                      OutboundQueue.OverflowPolicy overflowPolicy) {
         this.game = game;
+        this.maxConnections = maxConnections;
+        this.queueCapacity = queueCapacity;
+        this.overflowPolicy = overflowPolicy;
+
+        Color color = UserConfigManager.parseColor(TypeOfWar.getUserConfig());
+        this.registry = new ClientRegistry(PlayerProto.PlayerData.newBuilder()
+                                                                 .setName(TypeOfWar.getUserConfig().getName())
+                                                                 .setR((float)color.getRed())
+                                                                 .setG((float)color.getGreen())
+                                                                 .setB((float)color.getBlue())
+                                                                 .setTeam(1) // the host is always on team 1
+                                                                 .build());
     }
 
     /**
-     * Starts the server socket and the acceptor thread, which listens for incoming connections and handles them
-     * accordingly.
+     * Opens the server channel and starts the selector thread, which accepts incoming connections and handles all of
+     * their IO.
      *
      * @throws IOException if the server socket fails to start.
      */
     public void start() throws IOException {
         LOG.info("Starting server on port {}...", DEFAULT_PORT);
-        socket = new ServerSocket(DEFAULT_PORT);
+        selector = Selector.open();
+        socket = ServerSocketChannel.open();
+        socket.bind(new InetSocketAddress(DEFAULT_PORT));
+        socket.configureBlocking(false);
+        socket.register(selector, SelectionKey.OP_ACCEPT);
+
+        try {
+            datagram = DatagramChannel.open();
+            datagram.bind(new InetSocketAddress(DEFAULT_PORT));
+            datagram.configureBlocking(false);
+            datagram.register(selector, SelectionKey.OP_READ);
+        } catch (IOException e) {
+            LOG.warn("Could not open UDP on port {}, gameplay packets will only use TCP: {}", DEFAULT_PORT,
+                     e.getMessage());
+            if (datagram != null) datagram.close();
+            datagram = null;
+        }
+
         running = true;
-        new Thread(this, "ServerAcceptor").start();
+        new Thread(this, "ServerSelector").start();
         startAdvertising(); // start the udp advertiser
     }
 
     /**
-     * Tries to stop the server gracefully, ending the acceptor and closing the thread.
+     * Tries to stop the server gracefully, ending the selector loop and closing every connection.
      *
      * @throws IOException if the socket fails to close.
      */
@@ -80,170 +164,399 @@ public class GameServer implements Runnable {
             LOG.info("Closing server socket now");
             socket.close();
         }
+        if (datagram != null) datagram.close();
         stopAdvertising();
         LOG.info("Closing {} client connection(s)", clients.size());
-        synchronized (clients) {
-            for (Socket c: clients) {
-                try {
-                    c.close();
-                } catch (IOException ignored) {
-                }
-            }
-            clients.clear();
-        }
+        for (ClientConnection c: clients) c.close();
+        clients.clear();
+        if (selector != null) selector.wakeup();
     }
 
     /**
-     * The method that will run when this server is started in the thread.
+     * The selector loop that will run when this server is started in the thread. Every ready channel is serviced here:
+     * new connections are accepted, readable clients are read and parsed, and writable clients are flushed.
+     * <p>
+     * The loop also drives the server tick, waking up at least {@link GameServer#TICK_RATE} times a second.
      *
      * @see GameServer#start()
+     * @see GameServer#tick()
      */
     @Override
     public void run() {
-        while (running) {
-            try {
-                Socket client = socket.accept();
-                handleClient(client);
-            } catch (IOException e) {
-                if (running) LOG.error(e);
+        long nextTick = System.nanoTime() + TICK_NANOS;
+
+        try (Selector sel = selector) {
+            while (running) {
+                long wait = nextTick - System.nanoTime();
+                if (wait > 0) sel.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(wait)));
+                else sel.selectNow();
+
+                if (System.nanoTime() - nextTick >= 0) {
+                    tick();
+                    nextTick += TICK_NANOS;
+                    // don't try to catch up on ticks we missed (e.g. after a long GC pause)
+                    if (System.nanoTime() - nextTick >= 0) nextTick = System.nanoTime() + TICK_NANOS;
+                }
+
+                Iterator<SelectionKey> keys = sel.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (!key.isValid()) continue;
+                    if (key.channel() == datagram) {
+                        try {
+                            readDatagrams();
+                        } catch (IOException | RuntimeException e) {
+                            LOG.warn("Failed to read datagram: {}", e.getMessage());
+                        }
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        try {
+                            acceptClient();
+                        } catch (IOException e) {
+                            LOG.error("Failed to accept incoming connection", e);
+                        }
+                        continue;
+                    }
+
+                    ClientConnection client = (ClientConnection)key.attachment();
+                    try {
+                        if (key.isReadable() && !client.read()) {
+                            LOG.info("Client {} disconnected", client.getAddress());
+                            dropClient(client);
+                            continue;
+                        }
+                        if (key.isValid() && key.isWritable()) client.flush();
+                        if (!client.isOpen()) clients.remove(client); // closed after flushing a denial
+                    } catch (IOException e) {
+                        LOG.info("Lost connection to client {}: {}", client.getAddress(), e.getMessage());
+                        dropClient(client);
+                    } catch (RuntimeException e) {
+                        // a bad client must never take the selector (and every other client) down with it
+                        LOG.error("Failed to handle client {}, dropping it", client.getAddress(), e);
+                        dropClient(client);
+                    }
+                }
+
+                dropOverflowedClients();
+            }
+        } catch (IOException | ClosedSelectorException e) {
+            if (running) LOG.error("Server selector loop failed", e);
+        }
+    }
+
+    /**
+     * Drops every client whose outbound queue overflowed. A stalled client never becomes writable, so this can't wait
+     * for its next flush; sending to it wakes the selector, so it is dropped straight after.
+     */
+    private void dropOverflowedClients() {
+        for (ClientConnection client: clients) {
+            if (client.hasOverflowed()) {
+                LOG.info("Dropping client {}, it couldn't keep up with its outbound packets", client.getAddress());
+                dropClient(client);
+            }
+        }
+    }
+
+    /**
+     * Runs once per server tick; pings every client once a second, and sends a snapshot of the rope during a match.
+     * Snapshots are sent at this fixed rate even if nobody pressed a key, so clients always have a recent pair of
+     * snapshots to interpolate between.
+     */
+    private void tick() {
+        if (++ticks % TICK_RATE == 0) ping();
+        if (!game.isInGame()) return;
+
+        RopeModel rope = this.rope;
+        long time = System.nanoTime() - ropeStart;
+        long team1 = rope.getPresses(1);
+        long team2 = rope.getPresses(2);
+
+        // every client also gets the last of its own key presses that the totals include, so it can reconcile
+        for (ClientRegistry.Session session: registry.snapshot().sessions()) {
+            ClientConnection conn = session.connection();
+            if (conn.getDatagramAddress() != null) {
+                datagramOut.clear();
+                datagramOut.put((byte)GamePacket.Type.SRV_ROPE_SNAPSHOT.ordinal())
+                           .putLong(time).putLong(team1).putLong(team2).putLong(conn.getAckedKeyPresses())
+                           .flip();
+                sendDatagram(conn);
+            }
+
+            // over TCP as well, until the client says the datagrams get through
+            if (conn.isReceivingDatagrams()) continue;
+            conn.send(new GamePacket(GamePacket.Type.SRV_ROPE_SNAPSHOT, ByteBuffer.allocate(32)
+                                                                                  .putLong(time)
+                                                                                  .putLong(team1)
+                                                                                  .putLong(team2)
+                                                                                  .putLong(conn.getAckedKeyPresses())
+                                                                                  .array()));
+        }
+    }
+
+    /**
+     * Pings every registered client (telling each how its last pings went), and broadcasts everyone's round trip time.
+     */
+    private void ping() {
+        var sessions = registry.snapshot().sessions();
+        if (sessions.isEmpty()) return;
+
+        long now = System.nanoTime();
+        var players = PlayerProto.Latencies.newBuilder();
+        for (ClientRegistry.Session session: sessions) {
+            LatencyStats stats = session.connection().getLatency();
+            long roundTrip = stats.getRoundTrip(0.5);
+
+            session.connection().send(new GamePacket(GamePacket.Type.SRV_PING, ByteBuffer.allocate(24)
+                                                                                   .putLong(now)
+                                                                                   .putLong(roundTrip)
+                                                                                   .putLong(stats.getClockOffset())
+                                                                                   .array()));
+            if (roundTrip >= 0) {
+                players.addPlayers(PlayerProto.PlayerLatency.newBuilder()
+                                                            .setName(session.name())
+                                                            .setRttMicros((int)Math.min(roundTrip / 1000,
+                                                                                        Integer.MAX_VALUE)));
             }
         }
+
+        PlayerProto.Latencies list = players.build();
+        broadcast(GamePacket.Type.SRV_LATENCIES, list);
+
+        var lobby = game.getActiveScene(LobbyGameScene.class);
+        if (lobby != null) lobby.post(() -> lobby.setLatencies(list));
     }
 
     /**
-     * Runs when a new client connects; this starts a dedicated thread to handle this client.
+     * Gets the latency stats of a registered client. This is safe to call from any thread.
+     *
+     * @param name the name of the client's player
      *
-     * @param client the incoming client socket
+     * @return the client's latency stats, or null if there is no client with that name (i.e. the host)
      */
-    private void handleClient(Socket client) {
-        new Thread(() -> {
-            LOG.info("Incoming client connection at {}", client.getInetAddress().getHostAddress());
-            clients.add(client);
-
-            try (client;
-                 var out = new PacketWriter(client.getOutputStream());
-                 DataInputStream dataInputStream = new DataInputStream(client.getInputStream())
-            ) {
-                while (true) {
-                    int length;
-                    try {
-                        length = dataInputStream.readInt();
-                    } catch (IOException e) {
-                        LOG.info("Client {} disconnected", client.getInetAddress());
-                        registeredClients.remove(client);
-                        clients.remove(client);
+    public LatencyStats getLatency(String name) {
+        ClientRegistry.Session session = registry.get(name);
+        return session == null ? null : session.connection().getLatency();
+    }
 
-                        var lobby = game.getActiveScene(LobbyGameScene.class);
-                        if (lobby != null) {
-                            propagateLobbyUpdate(lobby);
-                        }
+    /**
+     * Sends what is in {@link GameServer#datagramOut} to a client's UDP address. If the socket's buffer is full, the
+     * datagram is dropped: the next one has everything it had anyway.
+     */
+    private void sendDatagram(ClientConnection client) {
+        try {
+            datagram.send(datagramOut, client.getDatagramAddress());
+        } catch (IOException e) {
+            LOG.debug("Failed to send datagram to {}: {}", client.getDatagramAddress(), e.getMessage());
+        }
+    }
 
-                        break; // client disconnected or stream closed
-                    }
-                    if (length <= 0) {
-                        LOG.warn("Received invalid packet length {} from {}", length, client.getInetAddress());
-                        break;
-                    }
-                    byte[] data = new byte[length];
-                    dataInputStream.readFully(data);
-                    parseRequest(client, GamePacket.deserialize(data), out);
-                }
-            } catch (IOException e) {
-                LOG.error(e);
-            } finally {
-                clients.remove(client);
+    /**
+     * Reads every datagram that is waiting, and hands the ones from registered clients to
+     * {@link GameServer#parseRequest(ClientConnection, PacketView)}, just like packets read over TCP.
+     */
+    private void readDatagrams() throws IOException {
+        while (true) {
+            datagramIn.clear();
+            SocketAddress from = datagram.receive(datagramIn);
+            if (from == null) return;
+
+            datagramIn.flip();
+            if (datagramIn.remaining() < 9) continue; // token and type
+
+            ClientConnection client = datagramClients.get(datagramIn.getLong());
+            int type = datagramIn.get();
+            if (client == null || type < 0 || type >= GamePacket.Type.values().length) continue;
+
+            GamePacket.Type t = GamePacket.Type.values()[type];
+            if (!t.isGameplay()) continue; // everything else must go over TCP
+            if (!t.hasValidLength(datagramIn.remaining())) continue; // anyone can send a datagram, so just ignore it
+
+            // the first datagram (or any after the client's address changed) opens the UDP path to it
+            if (!from.equals(client.getDatagramAddress())) {
+                LOG.info("Opened UDP path to client {} at {}", client.getAddress(), from);
+                client.setDatagramAddress((InetSocketAddress)from);
             }
-        }, "ClientHandler-" + client.getInetAddress()).start();
+
+            datagramView.set(t, datagramIn, datagramIn.position(), datagramIn.remaining());
+            parseRequest(client, datagramView);
+        }
+    }
+
+    /**
+     * Starts a new rope for a match, which the server counts every key press on from now on.
+     *
+     * @param multiplier the multiplier of the match
+     *
+     * @return the new rope, for the host's own scene to show
+     */
+    public RopeModel newRope(float multiplier) {
+        RopeModel rope = new RopeModel(multiplier);
+        this.rope = rope;
+        ropeStart = System.nanoTime();
+        return rope;
+    }
+
+    /**
+     * Counts a correct key press on the rope. This is safe to call from any thread.
+     *
+     * @param team the team of the player who pressed the key (1 or 2)
+     */
+    public void recordKeyPress(int team) {
+        rope.press(team, 1);
+    }
+
+    /**
+     * Runs when a new client connects; registers the channel with the selector so it's serviced by the loop.
+     */
+    private void acceptClient() throws IOException {
+        SocketChannel channel = socket.accept();
+        if (channel == null) return;
+
+        channel.configureBlocking(false);
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+        ClientConnection client = new ClientConnection(channel, key, this::parseRequest, queueCapacity,
+                                                       overflowPolicy);
+        key.attach(client);
+        clients.add(client);
+
+        LOG.info("Incoming client connection at {}", client.getAddress().getHostAddress());
+    }
+
+    /**
+     * Closes and forgets a client, and updates the lobby if it was registered.
+     */
+    private void dropClient(ClientConnection client) {
+        client.close();
+        clients.remove(client);
+        ClientRegistry.Session session = client.getSession();
+        if (session == null || !registry.remove(session)) return;
+        datagramClients.remove(client.getDatagramToken());
+        propagatePlayerLeft(session.name());
+
+        // the match may have only been waiting on this client's end game stats
+        endGameIfCollected();
     }
 
     /**
      * Parses a request from a client
      *
-     * @param client the client socket that this packet is from
+     * @param client the client connection that this packet is from, also used to respond to the client.
      * @param packet the packet itself, from the client
-     * @param out    the output stream used to respond to the client.
      */
-    private void parseRequest(Socket client, GamePacket packet, PacketWriter out) {
-        if (packet == null) return;
-
-        LOG.debug("Received {} from {}", packet.type(), client.getInetAddress());
+    private void parseRequest(ClientConnection client, PacketView packet) {
+        LOG.debug("Received {} from {}", packet.type(), client.getAddress());
 
         try {
             // first, check if the client asked to be registered
-            if (packet.type() == GamePacket.Type.CLT_REQ_CONN) handleClientRegistration(client, packet, out);
+            if (packet.type() == GamePacket.Type.CLT_REQ_CONN) {
+                handleClientRegistration(client, packet);
+                return;
+            }
 
             // next, if they didn't ask and they still aren't registered, kick them
-            if (!registeredClients.containsKey(client)) {
+            ClientRegistry.Session session = client.getSession();
+            if (session == null) {
                 LOG.warn("Got packet from unregistered client; closing connection");
-                client.close();
+                dropClient(client);
+                return;
+            }
+
+            // a packet that is cut short (or too long) can't be read, and a well-behaved client never sends one
+            if (!packet.type().hasValidLength(packet.length())) {
+                LOG.warn("Got {} with a malformed {}-byte payload from {}; closing connection", packet.type(),
+                         packet.length(), client.getAddress());
+                dropClient(client);
+                return;
             }
 
             // finally, parse the request
             switch (packet.type()) {
-                // when clt presses a key, find their team and broadcast that
+                // when clt presses a key, find their team and count it on the rope (which the host's scene shows)
                 case CLT_KEY_PRESS -> {
-                    int team = registeredClients.get(client).team;
+                    int team = session.team();
+                    client.setReceivingDatagrams(packet.getByte(8) != 0);
 
-                    TypeOfWarScene scene = game.getActiveScene(TypeOfWarScene.class);
-                    if (scene == null) {
+                    if (game.getActiveScene(TypeOfWarScene.class) == null) {
                         LOG.warn("Got a key press signal, but was not in TypeOfWarScene. Ignoring");
                         return;
                     }
 
-                    scene.moveRope(team == 1);
-                    broadcast(new GamePacket(GamePacket.Type.SRV_KEY_PRESS, new byte[]{ (byte)team }));
+                    // only count presses that weren't counted yet; the next totals ack them
+                    rope.press(team, client.ackKeyPresses(packet.getLong(0)));
+                }
+
+                // the client missed a change to the player list, so send it the whole list again
+                case CLT_REQ_LOBBY -> {
+                    var lobby = game.getActiveScene(LobbyGameScene.class);
+                    if (lobby != null) sendLobby(client, lobby.getRoomName());
                 }
 
+                // the client answered our ping; this is the last of its four timestamps
+                case CLT_PONG -> client.getLatency().add(packet.getLong(0), packet.getLong(8), packet.getLong(16),
+                                                         System.nanoTime());
+
                 case CLT_END_GAME_STATS -> {
-                    if (endGameStats.containsKey(client)) {
+                    // collect every client's stats one by one
+                    var playerStats = packet.parse(EndGameProto.PlayerStats.parser());
+                    if (endGameStats.putIfAbsent(session.id(), playerStats) != null) {
                         LOG.warn(
                                 "Client {} gave their end game stats again, ignoring duplicate",
-                                client.getInetAddress());
+                                client.getAddress());
                         return;
                     }
 
-                    // collect every client's stats one by one
-                    endGameStats.put(client, EndGameProto.PlayerStats.parseFrom(packet.payload()));
-
-                    // check if all stats are collected, if they are, show the end screen
-                    if (endGameStats.size() == registeredClients.size()) {
-                        // collect all stats from list and add host's
-                        var collected = new ArrayList<>(endGameStats.values());
-                        collected.add(game.getEndGameStats());
-
-                        // build stats to buf, broadcast it, and show the end game screen
-                        var stats = EndGameProto.AllStats.newBuilder()
-                                                         .addAllStats(collected)
-                                                         .setWinningTeam(game.getWinningTeam())
-                                                         .build();
-
-                        broadcast(new GamePacket(GamePacket.Type.SRV_END_GAME, stats));
-                        Platform.runLater(() -> game.showEndGameScreen(stats));
-                    }
+                    endGameIfCollected();
                 }
             }
         } catch (IOException e) {
-            LOG.error("Failed to close client at {}", client.getInetAddress(), e);
+            LOG.error("Failed to parse {} from client at {}", packet.type(), client.getAddress(), e);
+        }
+    }
+
+    /**
+     * Ends the match once every registered client has given its end game stats: broadcasts everyone's stats, and shows
+     * the end game screen. Stats of clients that left after giving them are still shown.
+     */
+    private void endGameIfCollected() {
+        if (endGameStats.isEmpty()) return; // not collecting
+        for (ClientRegistry.Session session: registry.snapshot().sessions()) {
+            if (!endGameStats.containsKey(session.id())) return;
         }
+
+        // collect all stats from list and add host's
+        var collected = new ArrayList<>(endGameStats.values());
+        collected.add(game.getEndGameStats());
+        endGameStats.clear();
+
+        // build stats to buf, broadcast it, and show the end game screen
+        var stats = EndGameProto.AllStats.newBuilder()
+                                         .addAllStats(collected)
+                                         .setWinningTeam(game.getWinningTeam())
+                                         .build();
+
+        broadcast(GamePacket.Type.SRV_END_GAME, stats);
+        Platform.runLater(() -> game.showEndGameScreen(stats));
     }
 
     /**
      * Handles a new client request and tries to register it or defer it. Should be called when receiving a CLT_REQ_CONN
      * packet.
      */
-    private void handleClientRegistration(Socket client, GamePacket packet, PacketWriter out) throws IOException {
-        if (registeredClients.size() < MAX_CONNECTIONS) {
-            PlayerProto.PlayerData data = PlayerProto.PlayerData.parseFrom(packet.payload());
+    private void handleClientRegistration(ClientConnection client, PacketView packet) throws IOException {
+        if (registry.snapshot().size() < maxConnections) {
+            PlayerProto.PlayerData data = packet.parse(PlayerProto.PlayerData.parser());
 
             // check if name is already used
-            if (data.getName().equals(TypeOfWar.getUserConfig().getName()) || // remote client matches host
-                registeredClients.values().stream().anyMatch(
-                        p -> p.name.equals(data.getName()))) { // or remote client matches another client
+            if (registry.isNameTaken(data.getName())) { // remote client matches host or another client
                 LOG.info(
-                        "Denying connection from {} (name '{}' in use)", client.getInetAddress(),
-                        packet.payload());
-                out.send(GamePacket.Type.SRV_DENY_CONN__USERNAME_TAKEN);
-                client.close();
+                        "Denying connection from {} (name '{}' in use)", client.getAddress(),
+                        data.getName());
+                client.send(GamePacket.Type.SRV_DENY_CONN__USERNAME_TAKEN);
+                client.closeAfterFlush();
                 return;
             }
 
@@ -254,135 +567,197 @@ public class GameServer implements Runnable {
             if (lobby == null) {
                 LOG.warn(
                         "Server got a registration request, but was not ready for it. Closing client at {}.",
-                        client.getInetAddress());
-                out.send(GamePacket.Type.SRV_UNEXPECTED);
-                client.close();
+                        client.getAddress());
+                client.send(GamePacket.Type.SRV_UNEXPECTED);
+                client.closeAfterFlush();
                 return;
             }
 
             // all good now! register the client
             Color color = Color.color(data.getR(), data.getG(), data.getB());
-            registeredClients.put(client, new ConnectionDetails(data.getName(), color, data.getTeam(), out));
-            LOG.info("Registered new client '{}' on team {} with color {} at {}!",
-                     data.getName(), data.getTeam(), color, client.getInetAddress());
+            var session = registry.register(client, data.getName(), color, data.getTeam());
+            client.setSession(session);
+            LOG.info("Registered new client '{}' (session {}) on team {} with color {} at {}!",
+                     data.getName(), session.id(), data.getTeam(), color, client.getAddress());
+
+            // listen for its datagrams, if it has a UDP channel and we do too
+            if (datagram != null && data.getUdpToken() != 0 && !datagramClients.containsKey(data.getUdpToken())) {
+                client.setDatagramToken(data.getUdpToken());
+                datagramClients.put(data.getUdpToken(), client);
+            }
 
             // update everyone's player list
-            propagateLobbyUpdate(lobby);
+            propagatePlayerJoined(session, lobby);
         }
 
         // check if srv is full
         else {
-            LOG.info("Denying connection from {} (server full)", client.getInetAddress());
-            out.send(GamePacket.Type.SRV_DENY_CONN__FULL);
-            client.close();
+            LOG.info("Denying connection from {} (server full)", client.getAddress());
+            client.send(GamePacket.Type.SRV_DENY_CONN__FULL);
+            client.closeAfterFlush();
+        }
+    }
+
+    /**
+     * Shows a newly registered player in the lobby. The player gets the whole player list, and everyone else only gets
+     * the change to it, so a join costs the same no matter how many players are already in the lobby.
+     */
+    private void propagatePlayerJoined(ClientRegistry.Session player, LobbyGameScene lobby) {
+        LOG.info("Propagating join of '{}' to lobby player list", player.name());
+        rebuildAdvertisement(lobby.getRoomName());
+
+        // the lobby's entities belong to the game loop, so change them there
+        lobby.post(() -> lobby.addPlayer(player.name(), player.color(), player.team()));
+
+        // the registry only changes on this thread, so this is the snapshot the player joined in
+        var snapshot = registry.snapshot();
+        PacketFrame delta = PacketFrame.encode(GamePacket.Type.SRV_LOBBY_DELTA,
+                                               PlayerProto.LobbyDelta.newBuilder()
+                                                                     .setVersion(snapshot.version())
+                                                                     .setAdded(player.data())
+                                                                     .build());
+        for (ClientRegistry.Session session: snapshot.sessions()) {
+            if (session != player) session.connection().send(delta);
         }
+
+        sendLobby(player.connection(), lobby.getRoomName());
     }
 
     /**
-     * Updates the player list and broadcasts the new list to every client
+     * Removes a player that left from the lobby, and tells every client about the change to the player list.
      */
-    private void propagateLobbyUpdate(LobbyGameScene lobby) {
-        LOG.info("Propagating update for lobby player list");
-        lobby.clearPlayers();
-
-        lobby.addPlayer(
-                TypeOfWar.getUserConfig().getName(),
-                UserConfigManager.parseColor(TypeOfWar.getUserConfig()),
-                1); // hardcode the host's team
-        for (ConnectionDetails player: registeredClients.values())
-            lobby.addPlayer(player.name, player.color, player.team);
-
-        // get the players on each team and send them to the client
-        broadcast(new GamePacket(
-                GamePacket.Type.SRV_UPDATE_PLAYERLIST,
-                PlayerProto.Lobby.newBuilder()
-                                 .setName(lobby.getRoomName())
-                                 .addAllTeam1(getTeam(1).toList())
-                                 .addAllTeam2(getTeam(2).toList())
-                                 .build()));
+    private void propagatePlayerLeft(String name) {
+        LOG.info("Propagating leave of '{}' to lobby player list", name);
+        if (advertised != null) rebuildAdvertisement(advertised.room());
+
+        var lobby = game.getActiveScene(LobbyGameScene.class);
+        if (lobby != null) lobby.post(() -> lobby.removePlayer(name));
+
+        // send it even during a match, so every client's player list stays the same as ours
+        broadcast(GamePacket.Type.SRV_LOBBY_DELTA,
+                  PlayerProto.LobbyDelta.newBuilder()
+                                        .setVersion(registry.snapshot().version())
+                                        .setRemoved(name)
+                                        .build());
     }
 
     /**
-     * Without checking who, this broadcasts the same packet to all registered clients.
+     * Sends the whole player list to a client, i.e. when it registers.
+     */
+    private void sendLobby(ClientConnection client, String room) {
+        var snapshot = registry.snapshot();
+        client.send(PacketFrame.encode(GamePacket.Type.SRV_UPDATE_PLAYERLIST,
+                                       PlayerProto.Lobby.newBuilder()
+                                                        .setName(room)
+                                                        .addAllTeam1(snapshot.team1())
+                                                        .addAllTeam2(snapshot.team2())
+                                                        .setVersion(snapshot.version())
+                                                        .build()));
+    }
+
+    /**
+     * Without checking who, this broadcasts the same packet to all registered clients. The packet is encoded once and
+     * the resulting frame is shared by every client; this only queues the frame, so it never blocks on the network.
      *
      * @param pkt the packet to broadcast
      */
     public void broadcast(GamePacket pkt) {
-        for (ConnectionDetails conn: registeredClients.values()) {
-            conn.out.send(pkt);
-        }
+        broadcast(pkt.encode());
     }
 
-    public Stream<PlayerProto.PlayerData> getTeam(int team) {
-        // stream registered clients into player data, filtering only those that match the team
-        var list = registeredClients.values().stream()
-                                    .filter(d -> d.team == team)
-                                    .map(d -> PlayerProto.PlayerData.newBuilder()
-                                                                    .setName(d.name)
-                                                                    .setR((float)d.color.getRed())
-                                                                    .setG((float)d.color.getGreen())
-                                                                    .setB((float)d.color.getBlue())
-                                                                    .build()
-                                    );
-
-        Color color = UserConfigManager.parseColor(TypeOfWar.getUserConfig());
+    /**
+     * Encodes a protobuf message straight into a frame and broadcasts it to all registered clients.
+     *
+     * @param type  the type of packet to broadcast
+     * @param proto the payload of the packet
+     *
+     * @see GameServer#broadcast(GamePacket)
+     */
+    public void broadcast(GamePacket.Type type, Message proto) {
+        broadcast(PacketFrame.encode(type, proto));
+    }
 
-        // add the host to team 1
-        if (team == 1) {
-            list = Stream.concat(
-                    Stream.of(PlayerProto.PlayerData.newBuilder().setName(TypeOfWar.getUserConfig().getName())
-                                                    .setR((float)color.getRed())
-                                                    .setG((float)color.getGreen())
-                                                    .setB((float)color.getBlue()).build()), list);
+    /**
+     * Without checking who, this queues the same (shared) frame for all registered clients.
+     *
+     * @param frame the frame to broadcast
+     */
+    public void broadcast(PacketFrame frame) {
+        for (ClientRegistry.Session session: registry.snapshot().sessions()) {
+            session.connection().send(frame);
         }
+    }
 
-        return list;
+    /**
+     * Gets the players on a team, including the host on team 1. This is safe to call from any thread, and doesn't
+     * copy anything.
+     *
+     * @param team the team (1 or 2)
+     *
+     * @return an unmodifiable list of the players on that team
+     */
+    public List<PlayerProto.PlayerData> getTeam(int team) {
+        return registry.snapshot().team(team);
     }
 
     /**
-     * Starts advertising this server on the IP broadcast channel with UDP discovery packets.
+     * Starts advertising this server to the multicast group with UDP discovery packets, every 2 seconds while the
+     * server is in its lobby.
+     *
+     * @see Advertisement
      */
     public void startAdvertising() {
-        if (advertiser != null && advertiser.isAlive()) return;
+        if (advertiser != null) return;
 
-        LOG.info("Starting UDP advertiser on port {}", ADVERTISE_PORT);
+        LOG.info("Starting UDP advertiser on {}:{}", ADVERTISE_GROUP, ADVERTISE_PORT);
+        try {
+            advertiseSocket = new MulticastSocket();
+            advertiseSocket.setTimeToLive(1); // don't leave the local network
+        } catch (IOException e) {
+            LOG.error("Could not open UDP advertiser socket", e);
+            return;
+        }
 
-        advertiser = new Thread(() -> {
-            try (DatagramSocket socket = new DatagramSocket()) {
-                socket.setBroadcast(true);
-                while (running) {
-                    // only listen in lobby
-                    if (game.isInGame()) continue;
-                    var lobby = game.getActiveScene(LobbyGameScene.class);
-                    if (lobby == null) {
-                        LOG.warn("Supposed to be in lobby, but lobby was null. Will not advertise this frame.");
-                        return;
-                    }
+        advertiser = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "ServerAdvertiser"));
+        advertiser.scheduleAtFixedRate(this::advertise, 0, 2, TimeUnit.SECONDS);
+    }
 
-                    LOG.debug("Broadcasting server advertisement for port");
+    /**
+     * Multicasts one advertisement, unless the server isn't in its lobby.
+     */
+    private void advertise() {
+        if (game.isInGame()) return; // only advertise in lobby
+        var lobby = game.getActiveScene(LobbyGameScene.class);
+        if (lobby == null) {
+            LOG.debug("Supposed to be in lobby, but lobby was null. Will not advertise this time.");
+            return;
+        }
 
-                    String msg =
-                            "TypeOfWarServer:" + lobby.getRoomName() + ":" + DEFAULT_PORT; // incl. lobby name and port
-                    byte[] buffer = msg.getBytes();
-                    DatagramPacket packet = new DatagramPacket(
-                            buffer,
-                            buffer.length,
-                            InetAddress.getByName("255.255.255.255"),
-                            ADVERTISE_PORT
-                    );
+        // nobody has joined yet, so the advertisement hasn't been built
+        if (advertisement == null) rebuildAdvertisement(lobby.getRoomName());
 
-                    socket.send(packet);
-                    Thread.sleep(2000); // broadcast every 2 seconds
-                }
-            } catch (IOException e) {
-                LOG.error("IO exception in server advertiser", e);
-            } catch (InterruptedException e) {
-                LOG.info("Advertiser interrupted, stopping");
-                stopAdvertising();
-            }
-        }, "ServerAdvertiser");
+        LOG.debug("Multicasting server advertisement {}", advertised);
+        byte[] buffer = advertisement;
+        try {
+            advertiseSocket.send(new DatagramPacket(buffer, buffer.length, InetAddress.getByName(ADVERTISE_GROUP),
+                                                    ADVERTISE_PORT));
+        } catch (IOException e) {
+            LOG.error("IO exception in server advertiser", e);
+        }
+    }
 
-        advertiser.start();
+    /**
+     * Builds and encodes the advertisement again, i.e. when a player joined or left. The advertiser sends the same
+     * bytes every time until then.
+     *
+     * @param room the name of the room
+     */
+    private void rebuildAdvertisement(String room) {
+        var snapshot = registry.snapshot(); // its team 1 includes the host
+        var ad = new Advertisement(PROTOCOL_VERSION, room, DEFAULT_PORT, snapshot.team1().size(),
+                                   snapshot.team2().size(), maxConnections + 1);
+        advertisement = ad.encode();
+        advertised = ad;
     }
 
     /**
@@ -391,8 +766,9 @@ public class GameServer implements Runnable {
     public void stopAdvertising() {
         if (advertiser != null) {
             LOG.info("Stopping UDP advertiser on port {}", ADVERTISE_PORT);
-            advertiser.interrupt();
+            advertiser.shutdownNow();
             advertiser = null;
+            advertiseSocket.close();
         }
     }
 }
\ No newline at end of file
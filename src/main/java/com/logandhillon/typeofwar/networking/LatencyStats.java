@@ -0,0 +1,73 @@
+package com.logandhillon.typeofwar.networking;
+
+import java.util.Arrays;
+
+/**
+ * Latency stats are the round trip times and clock offset of a connection, measured by its pings.
+ * <p>
+ * Every ping is an NTP-style exchange of four timestamps: when the ping was sent (on the server's clock), when it was
+ * received and when it was answered (on the client's clock), and when the answer came back (on the server's clock
+ * again). The round trip time leaves out how long the client took to answer; the clock offset assumes that both ways
+ * took as long as each other.
+ * <p>
+ * Only the latest samples are held. The clock offset is taken from the quickest of them, like NTP's clock filter does:
+ * the less time an exchange spent on the network, the less room there was for one way to take longer than the other.
+ * <p>
+ * Stats are written by one thread and may be read by any.
+ *
+ * @author Logan Dhillon
+ * @see GameServer
+ */
+public final class LatencyStats {
+    private static final int SAMPLES = 32; // about half a minute of pings
+
+    private final long[] roundTrips = new long[SAMPLES];
+    private final long[] offsets    = new long[SAMPLES];
+    private       int    count; // total samples ever added, the newest is at (count - 1) % SAMPLES
+
+    /**
+     * Adds the sample of a ping.
+     *
+     * @param sent     when the ping was sent, on the server's {@link System#nanoTime()}
+     * @param received when the client received the ping, on its {@link System#nanoTime()}
+     * @param replied  when the client answered the ping, on its {@link System#nanoTime()}
+     * @param returned when the answer arrived, on the server's {@link System#nanoTime()}
+     */
+    public synchronized void add(long sent, long received, long replied, long returned) {
+        int i = count++ % SAMPLES;
+        roundTrips[i] = Math.max(0, (returned - sent) - (replied - received));
+        offsets[i] = ((received - sent) + (replied - returned)) / 2;
+    }
+
+    /**
+     * @param percentile the percentile, from 0 to 1 (i.e. 0.5 for the median)
+     *
+     * @return the round trip time at that percentile of the held samples (in nanoseconds), or -1 if there are none
+     */
+    public synchronized long getRoundTrip(double percentile) {
+        int n = Math.min(count, SAMPLES);
+        if (n == 0) return -1;
+
+        long[] sorted = Arrays.copyOf(roundTrips, n);
+        Arrays.sort(sorted);
+        return sorted[Math.max(0, (int)Math.ceil(percentile * n) - 1)];
+    }
+
+    /**
+     * @return how far ahead the client's {@link System#nanoTime()} is of the server's (negative if it is behind), or 0
+     * if there are no samples yet
+     */
+    public synchronized long getClockOffset() {
+        int n = Math.min(count, SAMPLES);
+        int quickest = 0;
+        for (int i = 1; i < n; i++) if (roundTrips[i] < roundTrips[quickest]) quickest = i;
+        return offsets[quickest];
+    }
+
+    /**
+     * @return the amount of samples that are held
+     */
+    public synchronized int getSamples() {
+        return Math.min(count, SAMPLES);
+    }
+}
@@ -0,0 +1,156 @@
+package com.logandhillon.typeofwar.networking;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+
+/**
+ * An outbound queue is a bounded buffer of messages waiting to be written to a single connection.
+ * <p>
+ * Any thread may {@link OutboundQueue#offer(Object, boolean)} to the queue without ever blocking on the network; the
+ * connection's writer drains it. When the queue is full, the {@link OverflowPolicy} decides what happens to the slow
+ * consumer.
+ *
+ * @param <T> the type of message that is queued
+ *
+ * @author Logan Dhillon
+ * @see ClientConnection
+ * @see PacketWriter
+ */
+public class OutboundQueue<T> {
+    private final ArrayDeque<Entry<T>> entries = new ArrayDeque<>();
+    private final int                  capacity;
+    private final OverflowPolicy       policy;
+
+    private boolean closed;
+
+    // counters, only changed while holding the lock but readable from anywhere
+    private volatile int  highWater;
+    private volatile long dropped;
+    private volatile long sent;
+
+    private record Entry<T>(T item, boolean droppable) {}
+
+    /**
+     * @param capacity the maximum amount of messages that may be waiting at once
+     * @param policy   what to do when a message is offered to a full queue
+     */
+    public OutboundQueue(int capacity, OverflowPolicy policy) {
+        if (capacity <= 0) throw new IllegalArgumentException("Queue capacity must be positive");
+        this.capacity = capacity;
+        this.policy = policy;
+    }
+
+    /**
+     * Adds a message to the back of the queue.
+     *
+     * @param item      the message to queue
+     * @param droppable if this message may be discarded to make room for newer ones (i.e. gameplay packets)
+     *
+     * @return false if the queue overflowed and the consumer should be disconnected
+     */
+    public synchronized boolean offer(T item, boolean droppable) {
+        if (closed) return false;
+
+        if (entries.size() >= capacity && !makeRoom()) return false;
+
+        entries.add(new Entry<>(item, droppable));
+        if (entries.size() > highWater) highWater = entries.size();
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Tries to free one slot according to the overflow policy.
+     *
+     * @return true if there is now room for another message
+     */
+    private boolean makeRoom() {
+        if (policy == OverflowPolicy.DROP_OLDEST) {
+            for (Iterator<Entry<T>> it = entries.iterator(); it.hasNext(); ) {
+                if (it.next().droppable) {
+                    it.remove();
+                    dropped++;
+                    return true;
+                }
+            }
+        }
+
+        // nothing could be dropped (or we aren't allowed to), the consumer is too slow
+        return false;
+    }
+
+    /**
+     * Removes the oldest message without waiting.
+     *
+     * @return the oldest message, or null if the queue is empty
+     */
+    public synchronized T poll() {
+        Entry<T> e = entries.poll();
+        if (e == null) return null;
+        sent++;
+        return e.item;
+    }
+
+    /**
+     * Removes the oldest message, waiting for one to be offered if the queue is empty.
+     *
+     * @return the oldest message, or null if the queue was closed
+     *
+     * @throws InterruptedException if the writer was interrupted while waiting
+     */
+    public synchronized T take() throws InterruptedException {
+        while (entries.isEmpty() && !closed) wait();
+        return poll();
+    }
+
+    /**
+     * Discards every waiting message and wakes up any writer blocked in {@link OutboundQueue#take()}.
+     */
+    public synchronized void close() {
+        closed = true;
+        entries.clear();
+        notifyAll();
+    }
+
+    public synchronized boolean isEmpty() {
+        return entries.isEmpty();
+    }
+
+    /**
+     * @return amount of messages currently waiting to be written
+     */
+    public synchronized int getDepth() {
+        return entries.size();
+    }
+
+    /**
+     * @return the deepest this queue has ever been
+     */
+    public int getHighWater() {
+        return highWater;
+    }
+
+    /**
+     * @return amount of messages that were discarded to make room for newer ones
+     */
+    public long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return amount of messages that were taken by the writer
+     */
+    public long getSent() {
+        return sent;
+    }
+
+    /**
+     * Decides what happens when a message is offered to a full {@link OutboundQueue}.
+     */
+    public enum OverflowPolicy {
+        /** discard the oldest droppable (gameplay) message, disconnecting only if everything queued is critical */
+        DROP_OLDEST,
+        /** immediately disconnect the slow consumer */
+        DISCONNECT
+    }
+}
@@ -0,0 +1,99 @@
+package com.logandhillon.typeofwar.networking;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.Message;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A packet frame is a {@link GamePacket} that has already been encoded into its exact wire format.
+ * <p>
+ * Frames are immutable, so the same frame can be handed to any amount of connections by reference: every connection
+ * writes from its own {@link PacketFrame#buffer()} view of the shared bytes. This is how broadcasts are serialized
+ * once, no matter how many clients receive them.
+ * <p>
+ * Format: [4-byte length of type + payload][1-byte type][payload bytes]
+ *
+ * @author Logan Dhillon
+ * @see GameServer#broadcast(GamePacket)
+ */
+public final class PacketFrame {
+    /** bytes in front of the payload: the length prefix and the type */
+    public static final int HEADER_LENGTH = 5;
+
+    /** frames at least this big are encoded off-heap, so they can be written to channels without another copy */
+    private static final int DIRECT_THRESHOLD = 1024;
+
+    private final GamePacket.Type type;
+    private final ByteBuffer      frame;
+
+    private PacketFrame(GamePacket.Type type, ByteBuffer frame) {
+        this.type = type;
+        this.frame = frame.asReadOnlyBuffer();
+    }
+
+    /**
+     * Encodes a packet into a frame.
+     *
+     * @param packet the packet to encode
+     *
+     * @return the encoded frame
+     */
+    public static PacketFrame encode(GamePacket packet) {
+        byte[] payload = packet.payload();
+        ByteBuffer buf = allocate(HEADER_LENGTH + payload.length);
+        buf.putInt(1 + payload.length).put((byte)packet.type().ordinal()).put(payload).flip();
+        return new PacketFrame(packet.type(), buf);
+    }
+
+    /**
+     * Encodes a protobuf message straight into a frame, without serializing it to an intermediate byte array first.
+     *
+     * @param type  the type of packet
+     * @param proto the message to use as the payload
+     *
+     * @return the encoded frame
+     */
+    public static PacketFrame encode(GamePacket.Type type, Message proto) {
+        int size = proto.getSerializedSize();
+        ByteBuffer buf = allocate(HEADER_LENGTH + size);
+        buf.putInt(1 + size).put((byte)type.ordinal());
+
+        try {
+            CodedOutputStream out = CodedOutputStream.newInstance(buf);
+            proto.writeTo(out);
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to encode " + type + " payload", e);
+        }
+
+        buf.position(0).limit(HEADER_LENGTH + size);
+        return new PacketFrame(type, buf);
+    }
+
+    private static ByteBuffer allocate(int length) {
+        return length >= DIRECT_THRESHOLD ? ByteBuffer.allocateDirect(length) : ByteBuffer.allocate(length);
+    }
+
+    /**
+     * Creates a new view of this frame's bytes, with its own position, ready to be written from the start.
+     *
+     * @return a read-only view that shares this frame's content
+     */
+    public ByteBuffer buffer() {
+        return frame.duplicate();
+    }
+
+    public GamePacket.Type type() {
+        return type;
+    }
+
+    /**
+     * @return the total length of this frame on the wire, including the header
+     */
+    public int length() {
+        return frame.limit();
+    }
+}
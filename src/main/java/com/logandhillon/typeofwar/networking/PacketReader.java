@@ -0,0 +1,112 @@
+package com.logandhillon.typeofwar.networking;
+
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A packet reader splits the bytes coming from a channel into packets, without allocating anything per packet.
+ * <p>
+ * Bytes are read into a single buffer borrowed from a {@link BufferPool}, and every complete frame is handed to the
+ * handler as a {@link PacketView} that points into that buffer. The buffer only grows (by swapping it for a bigger
+ * pooled one) if a frame doesn't fit, and is given back to the pool when the reader is closed.
+ * <p>
+ * Format: [4-byte length of type + payload][1-byte type][payload bytes]
+ *
+ * @author Logan Dhillon
+ * @see PacketFrame
+ */
+public class PacketReader implements AutoCloseable {
+    private static final Logger LOG = LoggerContext.getContext().getLogger(PacketReader.class);
+
+    public static final int MAX_FRAME_LENGTH = 1024 * 1024; // anything bigger than this is a bad peer
+
+    private static final GamePacket.Type[] TYPES = GamePacket.Type.values();
+
+    private final BufferPool pool;
+    private final PacketView view = new PacketView();
+
+    private ByteBuffer buffer; // null once closed
+
+    /**
+     * @param pool the pool to borrow the read buffer from
+     */
+    public PacketReader(BufferPool pool) {
+        this.pool = pool;
+        this.buffer = pool.acquire(BufferPool.MIN_CAPACITY);
+    }
+
+    /**
+     * Reads from the channel once, then hands every complete packet in the buffer to the handler. On a non-blocking
+     * channel this only reads what is currently available; on a blocking channel it waits for at least one byte.
+     *
+     * @param channel the channel to read from
+     * @param handler the handler that will receive each packet; the view is only valid until it returns
+     *
+     * @return false if the peer closed the connection (or sent garbage), or this reader was closed
+     *
+     * @throws IOException if the channel fails to read, or the handler throws
+     */
+    public synchronized boolean read(ReadableByteChannel channel, PacketView.Handler handler) throws IOException {
+        if (buffer == null || channel.read(buffer) < 0) return false;
+
+        buffer.flip();
+        try {
+            while (buffer.remaining() >= 4) {
+                int start = buffer.position();
+                int length = buffer.getInt(start);
+                if (length <= 0 || length > MAX_FRAME_LENGTH) {
+                    LOG.warn("Received invalid packet length {}", length);
+                    return false;
+                }
+
+                // frame isn't fully here yet, make sure it will fit and wait for more data
+                if (buffer.remaining() < 4 + length) {
+                    if (buffer.capacity() < 4 + length) grow(4 + length);
+                    break;
+                }
+
+                buffer.position(start + 4 + length);
+
+                int typeIndex = buffer.get(start + 4);
+                if (typeIndex < 0 || typeIndex >= TYPES.length) {
+                    LOG.warn("Skipping packet, TYPE {} does not exist", typeIndex);
+                    continue;
+                }
+
+                view.set(TYPES[typeIndex], buffer, start + PacketFrame.HEADER_LENGTH, length - 1);
+                handler.handle(view);
+                if (buffer == null) return false; // the handler closed this reader
+            }
+        } finally {
+            if (buffer != null) buffer.compact();
+        }
+        return true;
+    }
+
+    /**
+     * Swaps the buffer for a bigger pooled one, keeping any unread bytes. Must be called while the buffer is flipped.
+     *
+     * @param capacity the minimum capacity of the new buffer
+     */
+    private void grow(int capacity) {
+        ByteBuffer bigger = pool.acquire(capacity);
+        bigger.put(buffer);
+        bigger.flip();
+        pool.release(buffer);
+        buffer = bigger;
+    }
+
+    /**
+     * Gives the buffer back to the pool. Any packets that were only partially received are discarded.
+     */
+    @Override
+    public synchronized void close() {
+        if (buffer == null) return;
+        pool.release(buffer);
+        buffer = null;
+    }
+}
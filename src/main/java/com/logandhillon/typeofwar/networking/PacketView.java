@@ -0,0 +1,130 @@
+package com.logandhillon.typeofwar.networking;
+
+import com.google.protobuf.CodedInputStream;
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * A packet view is a received packet that still lives inside the {@link PacketReader}'s buffer.
+ * <p>
+ * The same view is reused for every packet a reader receives, so nothing is copied or allocated for a packet unless
+ * its payload is actually parsed. This also means a view is <b>only valid until the handler it was given to
+ * returns</b>; anything that must outlive that has to be parsed or copied first (see {@link PacketView#copy()}).
+ *
+ * @author Logan Dhillon
+ * @see PacketReader
+ */
+public final class PacketView {
+    private GamePacket.Type type;
+    private ByteBuffer      buffer;
+    private int             offset;
+    private int             length;
+
+    /**
+     * Points this view at the next packet in a reader's buffer.
+     */
+    void set(GamePacket.Type type, ByteBuffer buffer, int offset, int length) {
+        this.type = type;
+        this.buffer = buffer;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    public GamePacket.Type type() {
+        return type;
+    }
+
+    /**
+     * @return the amount of bytes in the payload
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * Reads a byte straight out of the payload.
+     *
+     * @param index the offset in the payload to read from
+     *
+     * @return the byte at that offset
+     *
+     * @throws IndexOutOfBoundsException if the payload is too short
+     */
+    public byte getByte(int index) {
+        if (index < 0 || index + 1 > length) throw new IndexOutOfBoundsException(index);
+        return buffer.get(offset + index);
+    }
+
+    /**
+     * Reads a big-endian unsigned short straight out of the payload.
+     *
+     * @param index the offset in the payload to read from
+     *
+     * @return the unsigned short at that offset
+     *
+     * @throws IndexOutOfBoundsException if the payload is too short
+     */
+    public int getUnsignedShort(int index) {
+        if (index < 0 || index + 2 > length) throw new IndexOutOfBoundsException(index);
+        return buffer.getShort(offset + index) & 0xFFFF;
+    }
+
+    /**
+     * Reads a big-endian long straight out of the payload.
+     *
+     * @param index the offset in the payload to read from
+     *
+     * @return the long at that offset
+     *
+     * @throws IndexOutOfBoundsException if the payload is too short
+     */
+    public long getLong(int index) {
+        if (index < 0 || index + 8 > length) throw new IndexOutOfBoundsException(index);
+        return buffer.getLong(offset + index);
+    }
+
+    /**
+     * @return a read-only slice of the payload, sharing the reader's buffer
+     */
+    public ByteBuffer payload() {
+        return buffer.slice(offset, length).asReadOnlyBuffer();
+    }
+
+    /**
+     * Parses the payload as a protobuf message, reading it straight out of the reader's buffer.
+     *
+     * @param parser the parser of the message type, i.e. {@code PlayerProto.PlayerData.parser()}
+     *
+     * @return the parsed message
+     *
+     * @throws InvalidProtocolBufferException if the payload is not a valid message of that type
+     */
+    public <T> T parse(Parser<T> parser) throws InvalidProtocolBufferException {
+        CodedInputStream in = CodedInputStream.newInstance(payload());
+        T message = parser.parseFrom(in);
+        in.checkLastTagWas(0);
+        return message;
+    }
+
+    /**
+     * Copies this view into a standalone {@link GamePacket} that stays valid after the handler returns.
+     *
+     * @return a packet with its own copy of the payload
+     */
+    public GamePacket copy() {
+        byte[] payload = new byte[length];
+        buffer.get(offset, payload);
+        return new GamePacket(type, payload);
+    }
+
+    /**
+     * Receives every packet that is read by a {@link PacketReader}.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        void handle(PacketView packet) throws IOException;
+    }
+}
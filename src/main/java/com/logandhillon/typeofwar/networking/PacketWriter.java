@@ -3,16 +3,16 @@ package com.logandhillon.typeofwar.networking;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.LoggerContext;
 
-import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 
 /**
- * A packet writer internally uses a {@link PrintWriter}, but instead of using Strings to communicate, it uses a
- * {@link GamePacket}.
+ * A packet writer writes {@link GamePacket}s to a blocking {@link WritableByteChannel}, i.e. a client's socket.
  * <p>
- * Such packet is then serialized and written to the output stream {using {@link PacketWriter#send(GamePacket)}}
+ * Packets passed to {@link PacketWriter#send(GamePacket)} are encoded into {@link PacketFrame}s, placed in a bounded
+ * {@link OutboundQueue} and written to the channel by this writer's own thread, so sending never blocks the caller
+ * (i.e. the FX thread) on the network.
  * <p>
  * This class it {@link AutoCloseable}, and should be used with a try-with-resources statement.
  *
@@ -21,32 +21,85 @@ import java.io.PrintWriter;
 public class PacketWriter implements AutoCloseable {
     private static final Logger LOG = LoggerContext.getContext().getLogger(PacketWriter.class);
 
-    private final DataOutputStream out;
+    public static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+    private final WritableByteChannel        out;
+    private final OutboundQueue<PacketFrame> queue;
+    private final Thread                     writer;
+
+    private volatile boolean running;
 
     /**
-     * Creates the internal print writer from an output stream
+     * Starts the writer thread for a channel, with a default queue.
      *
-     * @param out the output stream to write to
+     * @param out the channel to write to
      */
-    public PacketWriter(OutputStream out) {
-        this.out = new DataOutputStream(out);
+    public PacketWriter(WritableByteChannel out) {
+        this(out, DEFAULT_QUEUE_CAPACITY, OutboundQueue.OverflowPolicy.DROP_OLDEST);
     }
 
     /**
-     * Serializes and writes a packet to the output stream, effectively "sending" it.
+     * Starts the writer thread for a channel.
      *
-     * @param packet the {@link GamePacket} to send.
+     * @param out           the channel to write to
+     * @param queueCapacity the maximum amount of packets that may be waiting to be written
+     * @param policy        what to do when the channel can't keep up with the packets being sent
      */
-    public void send(GamePacket packet) {
-        LOG.debug("Sending {} packet", packet.type());
+    public PacketWriter(WritableByteChannel out, int queueCapacity, OutboundQueue.OverflowPolicy policy) {
+        this.out = out;
+        this.queue = new OutboundQueue<>(queueCapacity, policy);
+        this.running = true;
 
+        writer = new Thread(this::writeLoop, "PacketWriter");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * The writer thread; takes frames off the queue and writes them to the channel.
+     */
+    private void writeLoop() {
         try {
-            byte[] data = packet.serialize();
-            out.writeInt(data.length);
-            out.write(data);
-            out.flush();
+            PacketFrame frame;
+            while (running && (frame = queue.take()) != null) {
+                LOG.debug("Sending {} packet", frame.type());
+
+                ByteBuffer buf = frame.buffer();
+                while (buf.hasRemaining()) out.write(buf);
+            }
+        } catch (InterruptedException e) {
+            LOG.info("Packet writer interrupted, stopping");
         } catch (IOException e) {
-            throw new RuntimeException(e);
+            if (running) LOG.error("Failed to write packet, stopping writer", e);
+        } finally {
+            running = false;
+            queue.close();
+        }
+    }
+
+    /**
+     * Encodes a packet and queues it to be written to the channel, effectively "sending" it.
+     *
+     * @param packet the {@link GamePacket} to send.
+     *
+     * @throws IllegalStateException if the writer was closed, or the queue overflowed and the writer is now closed
+     */
+    public void send(GamePacket packet) {
+        send(packet.encode());
+    }
+
+    /**
+     * Queues an already-encoded frame to be written to the channel.
+     *
+     * @param frame the {@link PacketFrame} to send.
+     *
+     * @throws IllegalStateException if the writer was closed, or the queue overflowed and the writer is now closed
+     */
+    public void send(PacketFrame frame) {
+        if (!queue.offer(frame, frame.type().isGameplay())) {
+            LOG.error("Could not queue {} packet ({} waiting), closing writer", frame.type(), queue.getDepth());
+            close();
+            throw new IllegalStateException("Packet writer is closed");
         }
     }
 
@@ -60,10 +113,20 @@ public class PacketWriter implements AutoCloseable {
     }
 
     /**
-     * Closes the internal {@link PrintWriter}.
+     * @return the outbound queue of this writer, i.e. to check its depth and drop counters
+     */
+    public OutboundQueue<PacketFrame> getQueue() {
+        return queue;
+    }
+
+    /**
+     * Stops the writer thread and closes the channel. Packets still waiting are discarded.
      */
     @Override
     public void close() {
+        running = false;
+        queue.close();
+        writer.interrupt();
         try {
             out.close();
         } catch (IOException e) {
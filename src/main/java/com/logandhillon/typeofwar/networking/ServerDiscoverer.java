@@ -6,25 +6,42 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.LoggerContext;
 
 import java.io.IOException;
-import java.net.DatagramPacket;
-import java.net.DatagramSocket;
-import java.net.SocketException;
-import java.util.ArrayList;
+import java.net.*;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * The server discoverer listens for the {@link Advertisement}s of servers on the local network (by joining their
+ * multicast group), and shows them on the {@link JoinGameScene}. Servers with another protocol version are left out, as
+ * they couldn't be joined anyway.
+ * <p>
+ * Discovery runs on a single scheduled thread. Every poll blocks on the socket until an advertisement arrives (or a
+ * timeout passes), so the thread sleeps whenever there is nothing to do. Every server is cached by its address and port
+ * until it hasn't advertised for a while, and the join screen is only updated when a server appears, changes or
+ * expires.
+ *
  * @author Logan Dhillon
  */
 public class ServerDiscoverer {
     private static final Logger LOG = LoggerContext.getContext().getLogger(ServerDiscoverer.class);
 
-    private final List<JoinGameScene.ServerEntry> discoveredServers = new ArrayList<>();
-    private final TypeOfWar                       game;
-    private       Thread                          discoverer;
-    private       Thread                          purger;
+    private static final int  RECEIVE_TIMEOUT = 500; // ms to wait for an advertisement in one poll
+    private static final long POLL_DELAY      = 100; // ms between polls, i.e. while in game
+    private static final long TTL             = TimeUnit.SECONDS.toNanos(6); // three missed advertisements
 
-    private volatile boolean listening        = false;
-    private volatile long    lastUpdateMillis = System.currentTimeMillis();
+    private final Map<String, Entry> discoveredServers = new ConcurrentHashMap<>(); // by address:port
+    private final TypeOfWar          game;
+    private final byte[]             buffer            = new byte[256];
+
+    private ScheduledExecutorService executor;
+    private MulticastSocket          socket;
+    private boolean                  changed; // if the join screen hasn't been shown the latest servers yet
+
+    private record Entry(JoinGameScene.ServerEntry server, long expires) {}
 
     public ServerDiscoverer(TypeOfWar game) {
         this.game = game;
@@ -34,82 +51,89 @@ public class ServerDiscoverer {
      * Starts the server discoverer
      */
     public void start() {
-        LOG.info("Starting UDP server discovery thread");
-        listening = true;
-
-        discoverer = new Thread(() -> {
-            try (DatagramSocket socket = new DatagramSocket(GameServer.ADVERTISE_PORT)) {
-                byte[] buffer = new byte[256];
-
-                while (listening) {
-                    if (game.isInGame()) continue; // only listen in lobby
-
-                    // dump all discovered servers— if they don't advertise again, they are probably gone
-                    discoveredServers.clear();
-
-                    DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
-                    socket.receive(packet);
-
-                    String pkt = new String(packet.getData(), 0, packet.getLength());
-                    if (!pkt.startsWith("TypeOfWarServer")) {
-                        return;
-                    } // ignore other services
-                    String[] parts = pkt.split(":", 3); // {service name:lobby name:port}
-                    if (parts.length < 3) {
-                        LOG.warn(
-                                "Received malformed server advertisement, there is likely a bad server on the network");
-                        return;
-                    }
-
-                    String ip = packet.getAddress().getHostAddress();
-                    discoveredServers.add(new JoinGameScene.ServerEntry(parts[1], ip));
-                    LOG.info("Discovered server at {}:{}", ip, pkt);
-
-                    updateJoinGameScene();
-                    lastUpdateMillis = System.currentTimeMillis();
-                }
-            } catch (SocketException e) {
-                LOG.info("UDP listener socket closed");
-            } catch (IOException e) {
-                LOG.error("Exception while receiving server discovery packet", e);
-            }
-        }, "UDP-ServerDiscovery");
-        discoverer.start();
-
-        // updates the server list if it becomes stale
-        purger = new Thread(() -> {
-            while (listening) {
-                // only update 4s after the last update
-                if (lastUpdateMillis + 4000 > System.currentTimeMillis()) continue;
-
-                updateJoinGameScene();
-
-                try {
-                    Thread.sleep(2000);
-                } catch (InterruptedException e) {
-                    LOG.warn("Sleep interrupted, attempting to kill this thread");
-                    Thread.currentThread().interrupt();
-                    return;
-                }
-            }
-        }, "Discoverer/ServerListUpdater");
-        purger.start();
+        LOG.info("Starting UDP server discovery");
+        try {
+            socket = new MulticastSocket(GameServer.ADVERTISE_PORT);
+            socket.joinGroup(new InetSocketAddress(InetAddress.getByName(GameServer.ADVERTISE_GROUP), 0), null);
+            socket.setSoTimeout(RECEIVE_TIMEOUT);
+        } catch (IOException e) {
+            LOG.error("Could not listen for server advertisements on port {}", GameServer.ADVERTISE_PORT, e);
+            return;
+        }
+
+        executor = Executors.newSingleThreadScheduledExecutor(r -> new Thread(r, "UDP-ServerDiscovery"));
+        executor.scheduleWithFixedDelay(this::poll, 0, POLL_DELAY, TimeUnit.MILLISECONDS);
     }
 
     /**
      * Stops the server discoverer
      */
     public void stop() {
-        LOG.info("Interrupting discovery threads");
-        listening = false;
-        discoverer.interrupt();
-        purger.interrupt();
+        LOG.info("Stopping UDP server discovery");
+        if (executor != null) executor.shutdownNow();
+        if (socket != null) socket.close(); // wakes up a blocked receive
+    }
+
+    /**
+     * Receives advertisements until none arrive for a while, then forgets servers that stopped advertising, and updates
+     * the join screen if anything changed.
+     */
+    private void poll() {
+        if (game.isInGame()) return; // only listen in lobby
+
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                DatagramPacket packet = new DatagramPacket(buffer, buffer.length);
+                socket.receive(packet);
+                receive(packet);
+            }
+        } catch (SocketTimeoutException e) {
+            // nothing more to receive for now
+        } catch (SocketException e) {
+            LOG.info("UDP listener socket closed");
+            return;
+        } catch (IOException e) {
+            LOG.error("Exception while receiving server discovery packet", e);
+        }
+
+        // if they don't advertise again, they are probably gone
+        long now = System.nanoTime();
+        if (discoveredServers.values().removeIf(e -> now - e.expires >= 0)) changed = true;
+
+        if (changed) updateJoinGameScene();
+    }
+
+    /**
+     * Caches the server of an advertisement, or refreshes it if it is already known.
+     */
+    private void receive(DatagramPacket packet) {
+        Advertisement ad = Advertisement.decode(packet.getData(), packet.getOffset(), packet.getLength());
+        if (ad == null) return; // ignore other services
+        if (ad.version() != GameServer.PROTOCOL_VERSION) {
+            LOG.debug("Ignoring server at {} with protocol version {}", packet.getAddress(), ad.version());
+            return;
+        }
+
+        String address = packet.getAddress().getHostAddress() + ":" + ad.port();
+        var server = new JoinGameScene.ServerEntry(ad.room(), address, ad.players(), ad.capacity());
+        Entry old = discoveredServers.put(address, new Entry(server, System.nanoTime() + TTL));
+
+        if (old == null) {
+            LOG.info("Discovered server '{}' at {}", server.name(), address);
+            changed = true;
+        } else if (!old.server.equals(server)) {
+            changed = true; // i.e. players joined or left
+        }
     }
 
     private void updateJoinGameScene() {
         var scene = game.getActiveScene(JoinGameScene.class);
-        if (scene == null) return;
-        LOG.debug("Updating join game scene with {} servers", discoveredServers.size());
-        scene.setDiscoveredServers(discoveredServers);
+        if (scene == null) return; // try again on the next poll
+
+        List<JoinGameScene.ServerEntry> servers = discoveredServers.values().stream().map(Entry::server).toList();
+        changed = false;
+
+        LOG.debug("Updating join game scene with {} servers", servers.size());
+        scene.post(() -> scene.setDiscoveredServers(servers));
     }
 }
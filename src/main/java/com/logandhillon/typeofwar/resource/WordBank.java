@@ -0,0 +1,113 @@
+package com.logandhillon.typeofwar.resource;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A word bank is a word list that has been loaded into memory once, in a compact form: every word is stored back to
+ * back in a single char pool, and an offset table says where each one starts.
+ * <p>
+ * Word banks are immutable, so one bank can be shared by every sentence that is generated from it.
+ *
+ * @author Logan Dhillon
+ * @see WordGen
+ */
+public final class WordBank {
+    private final char[] chars;
+    private final int[]  offsets; // word i is chars[offsets[i]] until chars[offsets[i + 1]]
+
+    private WordBank(char[] chars, int[] offsets) {
+        this.chars = chars;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Loads a word list resource, one word per line. Blank lines are skipped.
+     *
+     * @param path the resource path of the word list, i.e. {@code /words/english.txt}
+     *
+     * @return the loaded word bank
+     *
+     * @throws FileNotFoundException if there is no resource at that path
+     * @throws IOException           if the resource fails to read, or has no words in it
+     */
+    public static WordBank load(String path) throws IOException {
+        String text;
+        try (InputStream file = WordBank.class.getResourceAsStream(path)) {
+            if (file == null) throw new FileNotFoundException("File not found:" + path);
+            text = new String(file.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        char[] chars = new char[text.length()];
+        int[] offsets = new int[64];
+        int words = 0;
+        int end = 0;
+
+        for (String line: text.split("\n")) {
+            line = line.strip();
+            if (line.isEmpty()) continue;
+
+            if (words + 1 >= offsets.length) offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            offsets[words++] = end;
+            line.getChars(0, line.length(), chars, end);
+            end += line.length();
+        }
+        if (words == 0) throw new IOException("Word list has no words: " + path);
+        offsets[words] = end;
+
+        return new WordBank(Arrays.copyOf(chars, end), Arrays.copyOf(offsets, words + 1));
+    }
+
+    /**
+     * @return the amount of words in this bank
+     */
+    public int size() {
+        return offsets.length - 1;
+    }
+
+    /**
+     * @param word the index of the word
+     *
+     * @return the amount of characters in that word
+     */
+    public int length(int word) {
+        return offsets[word + 1] - offsets[word];
+    }
+
+    /**
+     * Copies a word into an array, straight from the char pool.
+     *
+     * @param dst  the array to copy to
+     * @param pos  where in the array to copy the word to
+     * @param word the index of the word
+     *
+     * @return the index in the array after the copied word
+     */
+    public int copyTo(char[] dst, int pos, int word) {
+        int length = length(word);
+        System.arraycopy(chars, offsets[word], dst, pos, length);
+        return pos + length;
+    }
+
+    /**
+     * @param word  the index of the word
+     * @param index the index of the character in that word
+     *
+     * @return the character
+     */
+    public char charAt(int word, int index) {
+        return chars[offsets[word] + index];
+    }
+
+    /**
+     * @param word the index of the word
+     *
+     * @return the word as a new string
+     */
+    public String get(int word) {
+        return new String(chars, offsets[word], length(word));
+    }
+}
@@ -1,8 +1,14 @@
 package com.logandhillon.typeofwar.resource;
 
-import java.io.*;
-import java.util.List;
-import java.util.Random;
+import com.logandhillon.typeofwar.engine.typing.EndlessSentence;
+import com.logandhillon.typeofwar.engine.typing.FixedSentence;
+import com.logandhillon.typeofwar.engine.typing.Sentence;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Word generation creates random sentences for users to type in their game
@@ -13,38 +19,78 @@ import java.util.Random;
  * @see <a href="https://monkeytype.com">MonkeyType.com</a>
  */
 public class WordGen {
-    private static final String WORDS_PATH = "/words/english.txt";
+    /** the word list that is used if no other is specified, i.e. {@code /words/english.txt} */
+    public static final String DEFAULT_WORD_LIST = "english";
+    /** the length of an endless sentence, whose words are generated as they are reached */
+    public static final int    ENDLESS           = 0;
+
+    private static final String WORDS_DIR = "/words/";
+
+    /** word banks that have already been loaded, by word list id */
+    private static final Map<String, WordBank> WORD_BANKS = new ConcurrentHashMap<>();
 
     /**
-     * generates a random sentence with `length` words in it, separated by spaces
-     * @param length length of sentence
+     * generates a random sentence with `length` words in it from the default word list
+     * @param length length of sentence, or {@link WordGen#ENDLESS}
      * @return generated sentence
      */
-    public static String generateSentence(int length) throws IOException {
-        try (InputStream file = WordGen.class.getResourceAsStream(WORDS_PATH)) {
-            // if file not found, throw error
-
-            if (file == null) {
-                throw new FileNotFoundException("File not found:" + WORDS_PATH);
-            }
-
-            BufferedReader buffered = new BufferedReader(new InputStreamReader(file));
-            // Convert text to lines -> list
-            List<String> words = buffered.lines().toList();
-
-            Random rand = new Random();
-            StringBuilder sentence = new StringBuilder();
-
-            // Picks length amount of word s from the word bank file and adds to sentence
-            for (int i = 0; i < length; i++) {
-                int randWord = rand.nextInt(words.size());
-                sentence.append(words.get(randWord));
-                if (i < length - 1) {
-                    sentence.append(" ");
-                }
-            }
-
-            return sentence.toString();
+    public static Sentence generateSentence(int length) throws IOException {
+        return generateSentence(DEFAULT_WORD_LIST, new SplittableRandom().nextLong(), length);
+    }
+
+    /**
+     * generates a sentence with `length` words in it, straight into the flat form a {@link Sentence} is kept in.
+     * the same word list, seed and length always give the same sentence, so clients can generate the server's
+     * sentence themselves instead of receiving it.
+     * an endless sentence is picked from the same stream of words, so its first words are the same as those of a fixed
+     * sentence with the same seed
+     * @param wordList id of the word list to use, i.e. {@link WordGen#DEFAULT_WORD_LIST}
+     * @param seed seed of the random word picks
+     * @param length length of sentence, or {@link WordGen#ENDLESS}
+     * @return generated sentence
+     * @throws FileNotFoundException if there is no word list with that id
+     */
+    public static Sentence generateSentence(String wordList, long seed, int length) throws IOException {
+        WordBank words = getWordBank(wordList);
+        if (length <= ENDLESS) return new EndlessSentence(words, seed);
+
+        // measure the sentence first, so it is allocated once at exactly the right size
+        SplittableRandom rand = new SplittableRandom(seed);
+        int size = length - 1; // spaces
+        for (int i = 0; i < length; i++) size += words.length(rand.nextInt(words.size()));
+
+        // then replay the exact same picks into it
+        rand = new SplittableRandom(seed);
+        char[] chars = new char[size];
+        int[] wordStart = new int[length + 1];
+        int end = 0;
+        for (int i = 0; i < length; i++) {
+            if (i > 0) chars[end++] = ' ';
+            wordStart[i] = end;
+            end = words.copyTo(chars, end, rand.nextInt(words.size()));
+        }
+        wordStart[length] = size + 1;
+
+        return new FixedSentence(chars, wordStart);
+    }
+
+    /**
+     * gets a word bank, loading it the first time it is used
+     * @param wordList id of the word list, i.e. {@link WordGen#DEFAULT_WORD_LIST}
+     * @return the loaded word bank
+     * @throws FileNotFoundException if there is no word list with that id
+     */
+    public static WordBank getWordBank(String wordList) throws IOException {
+        WordBank bank = WORD_BANKS.get(wordList);
+        if (bank != null) return bank;
+
+        // word list ids may come from the network, so never let them point outside the words folder
+        if (!wordList.matches("[a-z0-9_-]+")) {
+            throw new FileNotFoundException("Invalid word list: " + wordList);
         }
+
+        bank = WordBank.load(WORDS_DIR + wordList + ".txt");
+        WordBank existing = WORD_BANKS.putIfAbsent(wordList, bank); // another thread may have loaded it first
+        return existing != null ? existing : bank;
     }
 }
@@ -1,14 +1,16 @@
 package com.logandhillon.typeofwar.scene;
 
 import com.logandhillon.typeofwar.TypeOfWar;
+import com.logandhillon.typeofwar.engine.RopeModel;
 import com.logandhillon.typeofwar.engine.disk.UserConfigManager;
+import com.logandhillon.typeofwar.entity.CountdownEntity;
 import com.logandhillon.typeofwar.entity.EndResultEntity;
 import com.logandhillon.typeofwar.entity.PlayerObject;
 import com.logandhillon.typeofwar.resource.WordGen;
+import javafx.application.Platform;
 import javafx.scene.paint.Color;
 
 import java.io.IOException;
-import java.util.ConcurrentModificationException;
 import java.util.List;
 
 public class TypeOfWarPracticeScene extends TypeOfWarScene {
@@ -26,17 +28,14 @@ public class TypeOfWarPracticeScene extends TypeOfWarScene {
                       TypeOfWar.getUserConfig().getName(),
                       UserConfigManager.parseColor(TypeOfWar.getUserConfig()))),
               List.of(new PlayerObject("Computer", Color.GREY)),
-              WordGen.generateSentence(10000), 1);
+              WordGen.generateSentence(WordGen.ENDLESS), new RopeModel(1), System.nanoTime() + CountdownEntity.LENGTH);
         this.computerWPM = computerWPM;
         secondsPerCharacter = 60f / (this.computerWPM * 5);
     }
 
     @Override
     protected void onUpdate(float dt) {
-        try {
-            super.onUpdate(dt);
-        } catch (ConcurrentModificationException ignored) {
-        }
+        super.onUpdate(dt);
 
         updateTimer += dt;
         if (updateTimer >= secondsPerCharacter) {
@@ -62,14 +61,16 @@ public class TypeOfWarPracticeScene extends TypeOfWarScene {
     }
 
     /**
-     * In practice mode, this does not act as a "signal," rather immediately shows the {@link EndGameScene}.
+     * In practice mode, this does not act as a "signal," rather shows the {@link EndGameScene} right after this tick.
      *
      * @param winningTeam the team# of the winner
      */
     @Override
     public void signalGameEnd(int winningTeam) {
         if (isEndScreenQueued) return; // only run ONCE
-        this.game.setScene(new EndGameScene(
+
+        // this is called while entities are being updated, so switch scenes after this tick instead of in the middle
+        EndGameScene endScene = new EndGameScene(
                 game,
                 List.of(stats.toEndResultEntity(new PlayerObject(
                         TypeOfWar.getUserConfig().getName(),
@@ -79,7 +80,8 @@ public class TypeOfWarPracticeScene extends TypeOfWarScene {
                         -1,
                         Math.round(wordsCounter),
                         new PlayerObject("COMPUTER", Color.GREY))),
-                winningTeam == 1)); // since player is always team 1, them winning is if team 1 won
+                winningTeam == 1); // since player is always team 1, them winning is if team 1 won
+        Platform.runLater(() -> game.setScene(endScene));
 
         isEndScreenQueued = true;
     }
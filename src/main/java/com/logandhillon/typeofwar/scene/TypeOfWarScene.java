@@ -2,6 +2,8 @@ package com.logandhillon.typeofwar.scene;
 
 import com.logandhillon.typeofwar.TypeOfWar;
 import com.logandhillon.typeofwar.engine.GameScene;
+import com.logandhillon.typeofwar.engine.RopeModel;
+import com.logandhillon.typeofwar.engine.typing.Sentence;
 import com.logandhillon.typeofwar.entity.*;
 import javafx.scene.Scene;
 import javafx.scene.canvas.GraphicsContext;
@@ -30,6 +32,7 @@ public class TypeOfWarScene extends GameScene {
     protected final GameStatisticsEntity stats;
     protected final TypeOfWar            game;
     protected final RopeEntity           rope;
+    protected final RopeModel            ropeModel;
 
     private   boolean isWinning = true;
     protected boolean isCountdownOver;
@@ -37,8 +40,16 @@ public class TypeOfWarScene extends GameScene {
     private static final MediaPlayer BG_MUSIC = new MediaPlayer(new Media(
             Objects.requireNonNull(SentenceEntity.class.getResource("/sound/bgMusic1.mp3")).toExternalForm()));
 
-    public TypeOfWarScene(TypeOfWar game, List<PlayerObject> team1, List<PlayerObject> team2, String sentenceText,
-                          float multiplier) {
+    /**
+     * @param game         the game this scene is in
+     * @param team1        the players on team 1, shown on the left
+     * @param team2        the players on team 2, shown on the right
+     * @param sentenceText the sentence to type
+     * @param ropeModel    the rope of this match, i.e. the server's own model when hosting
+     * @param goTime       when the countdown ends and typing starts, on this machine's {@link System#nanoTime()}
+     */
+    public TypeOfWarScene(TypeOfWar game, List<PlayerObject> team1, List<PlayerObject> team2, Sentence sentenceText,
+                          RopeModel ropeModel, long goTime) {
         this.game = game;
         stats = new GameStatisticsEntity(64, 144, CANVAS_WIDTH - 128);
         addEntity(stats);
@@ -48,19 +59,29 @@ public class TypeOfWarScene extends GameScene {
         sentence.setText(sentenceText);
         sentence.setComplete(true);
 
-        rope = new RopeEntity(64, CANVAS_HEIGHT);
+        this.ropeModel = ropeModel;
+        rope = new RopeEntity(64, CANVAS_HEIGHT, ropeModel);
         for (var p: team1) rope.addPlayer(p, RopeEntity.Team.LEFT);
         for (var p: team2) rope.addPlayer(p, RopeEntity.Team.RIGHT);
-        rope.setMultiplier(multiplier);
         addEntity(rope);
 
         isCountdownOver = false;
-        addEntity(new CountdownEntity(CANVAS_WIDTH / 2f, 140, () -> {
+        addEntity(new CountdownEntity(CANVAS_WIDTH / 2f, 140, goTime, () -> {
             sentence.setComplete(false);
             isCountdownOver = true;
         }));
     }
 
+    @Override
+    protected void onUpdate(float dt) {
+        super.onUpdate(dt);
+        isWinning =
+                rope.getWinningTeam() == (game.getWinningTeam() == 0 ? RopeEntity.Team.LEFT : RopeEntity.Team.RIGHT);
+
+        // one packet per frame, no matter how many keys were pressed since the last one
+        game.flushKeyPresses();
+    }
+
     @Override
     protected void render(GraphicsContext g) {
         // background
@@ -115,9 +136,9 @@ public class TypeOfWarScene extends GameScene {
     public void sendCorrectKeyPress() {
         if (!isCountdownOver) return;
 
-        boolean isServer = game.sendCorrectKeyPress();
-        if (isServer) moveRope(true); // server host is always on team 1
-        // if a client sent a key press, wait for the server to tell us to move the rope.
+        // the host counts it straight into the rope model that this scene shows; a client shows it straight away, as a
+        // prediction, until the server's totals include it
+        game.sendCorrectKeyPress(ropeModel.predict());
     }
 
     @Override
@@ -133,12 +154,20 @@ public class TypeOfWarScene extends GameScene {
         super.discard(scene);
     }
 
+    /**
+     * Counts a correct key press on this scene's own rope model, i.e. in practice mode where there is no server.
+     *
+     * @param team1 true if the key press came from team 1 (left), false if team 2 (right)
+     */
     public void moveRope(boolean team1) {
-        if (team1) rope.moveRopeL();
-        else rope.moveRopeR();
+        ropeModel.press(team1 ? 1 : 2, 1);
+    }
 
-        this.isWinning =
-                rope.getWinningTeam() == (game.getWinningTeam() == 0 ? RopeEntity.Team.LEFT : RopeEntity.Team.RIGHT);
+    /**
+     * @return the rope model of this match, which the client keeps in sync with the server's totals
+     */
+    public RopeModel getRopeModel() {
+        return ropeModel;
     }
 
     /**
@@ -20,6 +20,7 @@ import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.LoggerContext;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -179,22 +180,34 @@ public class JoinGameScene extends UIScene {
     }
 
     /**
-     * Replaces the current server list with a new set of them
+     * Replaces the current server list with a new set of them. Full servers are left out, and the rest are sorted by
+     * the most players first (then by name), so the liveliest lobbies are at the top of a long list.
      *
      * @param newList list of all discovered servers
      */
     public void setDiscoveredServers(List<ServerEntry> newList) {
-        serverList = newList;
+        serverList = newList.stream()
+                            .filter(s -> !s.isFull())
+                            .sorted(Comparator.comparingInt(ServerEntry::players).reversed()
+                                              .thenComparing(ServerEntry::name)
+                                              .thenComparing(ServerEntry::address))
+                            .toList();
         updateServerList();
     }
 
     /**
      * An entry in the server list of the join game screen.
      *
-     * @param name    name of the server/room
-     * @param address FQDN or IP address of server
+     * @param name     name of the server/room
+     * @param address  FQDN or IP address of server, and its port
+     * @param players  the amount of players in the server's lobby
+     * @param capacity the maximum amount of players in the server's lobby
      */
-    public record ServerEntry(String name, String address) {}
+    public record ServerEntry(String name, String address, int players, int capacity) {
+        public boolean isFull() {
+            return players >= capacity;
+        }
+    }
 
     /**
      * @param e       any key event registered by javafx
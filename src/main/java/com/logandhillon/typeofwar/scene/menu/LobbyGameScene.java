@@ -6,6 +6,7 @@ import com.logandhillon.typeofwar.entity.core.Entity;
 import com.logandhillon.typeofwar.entity.ui.component.DarkMenuButton;
 import com.logandhillon.typeofwar.entity.ui.component.LabeledModalEntity;
 import com.logandhillon.typeofwar.entity.ui.LobbyPlayerEntity;
+import com.logandhillon.typeofwar.networking.proto.PlayerProto;
 import com.logandhillon.typeofwar.scene.TypeOfWarScene;
 import com.logandhillon.typeofwar.resource.Colors;
 import com.logandhillon.typeofwar.resource.Fonts;
@@ -17,6 +18,9 @@ import javafx.scene.text.TextAlignment;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.core.LoggerContext;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+
 import static com.logandhillon.typeofwar.TypeOfWar.CANVAS_HEIGHT;
 import static com.logandhillon.typeofwar.TypeOfWar.CANVAS_WIDTH;
 
@@ -32,11 +36,11 @@ public class LobbyGameScene extends UIScene {
     private static final Font   LABEL_FONT = Font.font(Fonts.DM_MONO_MEDIUM, 18);
     private static final float  ENTITY_GAP = 48;
 
-    private final LabeledModalEntity lobbyModal;
-    private final String             roomName;
-
-    private float dyTeam1;
-    private float dyTeam2;
+    private final LabeledModalEntity    lobbyModal;
+    private final String                roomName;
+    private final HashMap<String, Slot> players = new HashMap<>(); // by name
+    private final ArrayList<Slot>       team1   = new ArrayList<>(); // from top to bottom
+    private final ArrayList<Slot>       team2   = new ArrayList<>();
 
     /**
      * @param mgr       the game manager responsible for switching active scenes.
@@ -57,7 +61,7 @@ public class LobbyGameScene extends UIScene {
         // shows different buttons at bottom depending on if the user is hosting
         DarkMenuButton startButton = new DarkMenuButton(isHosting ? "START GAME" : "WAITING FOR HOST TO START...",
                                                         16, 269, 530, 48, () -> {
-            if (isHosting) mgr.startGame(null, 0);
+            if (isHosting) mgr.startGame(null, 0, 0);
             // don't do anything if not hosting (button is disabled)
         });
 
@@ -73,40 +77,96 @@ public class LobbyGameScene extends UIScene {
     }
 
     /**
-     * Adds a player to the list of players on the corresponding team.
+     * Adds a player to the bottom of the list of players on the corresponding team. If the player is already in the
+     * lobby, they are updated instead.
      *
      * @param name  player name
      * @param color player skin's color
      * @param team  player team (1 or 2)
      */
     public void addPlayer(String name, Color color, int team) {
+        if (players.containsKey(name)) {
+            updatePlayer(name, color, team);
+            return;
+        }
         LOG.info("Adding player \"{}\" with color {} to team {}", name, color.toString(), team);
 
-        if (team == 1) {
-            var p = new LobbyPlayerEntity(color, name);
-            p.setPosition(32, p.getY() + dyTeam1 + 128);
-            dyTeam1 += ENTITY_GAP;
-            lobbyModal.addEntity(p);
-            return;
+        ArrayList<Slot> slots = getSlots(team);
+        var p = new LobbyPlayerEntity(color, name);
+        p.setPosition(team == 1 ? 32 : 305, p.getY() + slots.size() * ENTITY_GAP + 128);
+        lobbyModal.addEntity(p);
+
+        Slot slot = new Slot(p, team, slots.size());
+        slots.add(slot);
+        players.put(name, slot);
+    }
+
+    /**
+     * Removes a player from the lobby. The last player on their team takes their place in the list, so no other player
+     * has to move.
+     *
+     * @param name player name
+     */
+    public void removePlayer(String name) {
+        Slot slot = players.remove(name);
+        if (slot == null) return;
+        LOG.info("Removing player \"{}\" from team {}", name, slot.team);
+
+        ArrayList<Slot> slots = getSlots(slot.team);
+        Slot last = slots.remove(slots.size() - 1);
+        if (last != slot) {
+            last.entity.translate(0, (slot.index - last.index) * ENTITY_GAP);
+            last.index = slot.index;
+            slots.set(slot.index, last);
         }
+        removeEntity(slot.entity);
+    }
 
-        if (team == 2) {
-            var p = new LobbyPlayerEntity(color, name);
-            p.setPosition(305, p.getY() + dyTeam2 + 128);
-            dyTeam2 += ENTITY_GAP;
-            lobbyModal.addEntity(p);
+    /**
+     * Changes a player's color and team, in place if they stay on the same team. Players that aren't in the lobby yet
+     * are added.
+     *
+     * @param name  player name
+     * @param color player skin's color
+     * @param team  player team (1 or 2)
+     */
+    public void updatePlayer(String name, Color color, int team) {
+        Slot slot = players.get(name);
+        if (slot != null && slot.team == team) {
+            LOG.info("Updating player \"{}\" to color {}", name, color.toString());
+            slot.entity.setColor(color);
             return;
         }
 
-        // if neither of the if-branches were handled, throw error
-        throw new IllegalArgumentException("Team must be either 1 or 2!");
+        removePlayer(name);
+        addPlayer(name, color, team);
     }
 
     public void clearPlayers() {
         LOG.info("Clearing player list");
         clearEntities(true, LobbyPlayerEntity.class::isInstance);
-        dyTeam1 = 0;
-        dyTeam2 = 0;
+        players.clear();
+        team1.clear();
+        team2.clear();
+    }
+
+    private ArrayList<Slot> getSlots(int team) {
+        if (team == 1) return team1;
+        if (team == 2) return team2;
+        throw new IllegalArgumentException("Team must be either 1 or 2!");
+    }
+
+    /**
+     * Shows the round trip time of each player in the list next to them. Players that aren't in it (i.e. the host)
+     * don't show one.
+     *
+     * @param latencies every player's round trip time to the server
+     */
+    public void setLatencies(PlayerProto.Latencies latencies) {
+        for (var l: latencies.getPlayersList()) {
+            Slot slot = players.get(l.getName());
+            if (slot != null) slot.entity.setLatency(l.getRttMicros());
+        }
     }
 
     @Override
@@ -119,6 +179,19 @@ public class LobbyGameScene extends UIScene {
         super.render(g);
     }
 
+    /** where a player is shown: their team's list, and how far down it */
+    private static final class Slot {
+        private final LobbyPlayerEntity entity;
+        private final int               team;
+        private       int               index;
+
+        private Slot(LobbyPlayerEntity entity, int team, int index) {
+            this.entity = entity;
+            this.team = team;
+            this.index = index;
+        }
+    }
+
     private static final class PlayerContainer extends Entity {
 
         private final float w;
@@ -0,0 +1,98 @@
+package com.logandhillon.typeofwar.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CommandQueueTest {
+    private final CommandQueue commands = new CommandQueue();
+
+    @Test
+    void drainRunsEveryCommandInOrder() {
+        List<Integer> ran = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            int n = i;
+            commands.post(() -> ran.add(n));
+        }
+
+        assertEquals(5, commands.drain());
+        assertEquals(List.of(0, 1, 2, 3, 4), ran);
+        assertEquals(0, commands.drain());
+    }
+
+    @Test
+    void commandPostedByACommandRunsInTheSameDrain() {
+        List<String> ran = new ArrayList<>();
+        commands.post(() -> {
+            ran.add("first");
+            commands.post(() -> ran.add("posted by first"));
+        });
+        commands.post(() -> ran.add("second"));
+
+        assertEquals(3, commands.drain());
+        assertEquals(List.of("first", "second", "posted by first"), ran);
+    }
+
+    @Test
+    void failingCommandDoesntLoseTheOthers() {
+        List<Integer> ran = new ArrayList<>();
+        commands.post(() -> ran.add(1));
+        commands.post(() -> {
+            throw new IllegalStateException("boom");
+        });
+        commands.post(() -> ran.add(3));
+
+        assertThrows(IllegalStateException.class, commands::drain);
+        assertEquals(List.of(1), ran);
+
+        assertEquals(1, commands.drain());
+        assertEquals(List.of(1, 3), ran);
+    }
+
+    @Test
+    void keepsEachProducersOrderWhileDraining() throws InterruptedException {
+        int producers = 8;
+        int perProducer = 200_000;
+
+        int[] last = new int[producers]; // only touched by the consumer, i.e. this thread
+        boolean[] outOfOrder = new boolean[1];
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 1; i <= perProducer; i++) {
+                    int seq = i;
+                    commands.post(() -> {
+                        if (last[producer] + 1 != seq) outOfOrder[0] = true;
+                        last[producer] = seq;
+                    });
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+
+        start.countDown();
+        long ran = 0;
+        while (ran < (long)producers * perProducer) {
+            ran += commands.drain();
+            assertFalse(outOfOrder[0]);
+        }
+        for (Thread t: threads) t.join();
+
+        assertEquals((long)producers * perProducer, ran);
+        assertEquals(0, commands.drain());
+        for (int p = 0; p < producers; p++) assertEquals(perProducer, last[p]);
+    }
+}
@@ -0,0 +1,112 @@
+package com.logandhillon.typeofwar.engine;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RopeModelTest {
+    @Test
+    void offsetIsDerivedFromTheTotals() {
+        var rope = new RopeModel(1.5f);
+        rope.press(1, 3);
+        rope.press(2, 1);
+
+        assertEquals(3, rope.getPresses(1));
+        assertEquals(1, rope.getPresses(2));
+        assertEquals(-3.0, rope.getOffset());
+
+        rope.press(2, 4);
+        assertEquals(3.0, rope.getOffset());
+    }
+
+    @Test
+    void ignoresNonPositivePresses() {
+        var rope = new RopeModel(1);
+        rope.press(1, 0);
+        rope.press(2, -5);
+
+        assertEquals(0, rope.getPresses(1));
+        assertEquals(0, rope.getPresses(2));
+    }
+
+    @Test
+    void serverModelIsNeverInterpolated() {
+        var rope = new RopeModel(2);
+        rope.press(2, 5);
+
+        assertEquals(rope.getOffset(), rope.getOffset(System.nanoTime()));
+    }
+
+    @Test
+    void countsPressesFromManyThreads() throws InterruptedException {
+        var rope = new RopeModel(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            int team = t % 2 + 1;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) rope.press(team, 1);
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread t: threads) t.join();
+
+        assertEquals(400_000, rope.getPresses(1));
+        assertEquals(400_000, rope.getPresses(2));
+        assertEquals(0.0, rope.getOffset());
+    }
+
+    @Test
+    void predictsOwnPressesUntilTheyAreAcked() {
+        var rope = new RopeModel(1, 1, 10, 0);
+
+        assertEquals(11, rope.predict());
+        assertEquals(12, rope.predict());
+        assertEquals(-2.0, rope.getOffset());
+
+        // the server has counted the first press, and someone on team 2 pressed three times
+        rope.sync(1, 1, 3, 11, 1);
+        assertEquals(1, rope.getPresses(1));
+        assertEquals(1.0, rope.getOffset()); // 3 - (1 counted + 1 predicted)
+
+        // both presses are in the totals now, so nothing is predicted on top of them anymore
+        rope.sync(2, 2, 3, 12, 2);
+        assertEquals(1.0, rope.getOffset());
+    }
+
+    @Test
+    void predictsForTheLocalTeam() {
+        var rope = new RopeModel(2, 2, 0, 0);
+        rope.predict();
+
+        assertEquals(2.0, rope.getOffset());
+        assertEquals(0, rope.getPresses(2));
+    }
+
+    @Test
+    void lateSnapshotsChangeNothing() {
+        var rope = new RopeModel(1, 1, 0, 0);
+        for (int i = 0; i < 5; i++) rope.predict();
+        rope.sync(2, 5, 7, 5, 2);
+
+        rope.sync(1, 3, 4, 3, 3); // older totals, older ack
+        assertEquals(5, rope.getPresses(1));
+        assertEquals(7, rope.getPresses(2));
+        assertEquals(2.0, rope.getOffset());
+    }
+
+    @Test
+    void ackIsNeverAheadOfThePrediction() {
+        var rope = new RopeModel(1, 1, 0, 0);
+        rope.predict();
+
+        rope.sync(1, 1, 0, 100, 1); // i.e. presses from before this model, that it never predicted
+        assertEquals(-1.0, rope.getOffset());
+
+        rope.predict();
+        assertEquals(-2.0, rope.getOffset());
+    }
+}
@@ -0,0 +1,85 @@
+package com.logandhillon.typeofwar.engine;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotBufferTest {
+    private static final long DELAY = 50;
+
+    private final SnapshotBuffer buffer = new SnapshotBuffer(DELAY);
+
+    @Test
+    void hasNothingToSampleAtFirst() {
+        assertFalse(buffer.sample(0));
+    }
+
+    @Test
+    void interpolatesBetweenSnapshots() {
+        buffer.add(0, 0, 0, 0, 1000); // the server's clock is 1000 behind this one
+        buffer.add(100, 10, 20, 4, 1100);
+
+        assertTrue(buffer.sample(1000 + 50 + DELAY));
+        assertEquals(5, buffer.getTeam1(), 1e-9);
+        assertEquals(10, buffer.getTeam2(), 1e-9);
+        assertEquals(2, buffer.getAck(), 1e-9);
+    }
+
+    @Test
+    void holdsInsteadOfExtrapolating() {
+        buffer.add(0, 1, 2, 3, 1000);
+        buffer.add(100, 10, 20, 30, 1100);
+
+        buffer.sample(1000 - 500 + DELAY);
+        assertEquals(1, buffer.getTeam1());
+
+        buffer.sample(1000 + 500 + DELAY);
+        assertEquals(10, buffer.getTeam1());
+        assertEquals(30, buffer.getAck());
+    }
+
+    @Test
+    void dropsSnapshotsOlderThanTheNewest() {
+        buffer.add(100, 10, 10, 0, 1100);
+        buffer.add(50, 99, 99, 0, 1150); // arrived late
+        buffer.add(100, 99, 99, 0, 1160); // repeated
+
+        buffer.sample(1000 + 1000 + DELAY);
+        assertEquals(10, buffer.getTeam1());
+    }
+
+    @Test
+    void mapsClocksWithTheFastestSnapshot() {
+        buffer.add(0, 0, 0, 0, 1030); // 30 slower than the next one
+        buffer.add(100, 10, 0, 0, 1100);
+
+        // shown time is now - 1000 - DELAY, even though the first snapshot suggested 1030
+        buffer.sample(1000 + 50 + DELAY);
+        assertEquals(5, buffer.getTeam1(), 1e-9);
+    }
+
+    @Test
+    void onlyKeepsTheNewestSnapshots() {
+        for (int i = 0; i < 40; i++) buffer.add(i * 100L, i, 0, 0, 1000 + i * 100L);
+
+        // long before anything that is still held, so the oldest held snapshot (24 of 40) is shown
+        buffer.sample(1000 + DELAY);
+        assertEquals(24, buffer.getTeam1());
+
+        buffer.sample(1000 + 3050 + DELAY);
+        assertEquals(30.5, buffer.getTeam1(), 1e-9);
+    }
+
+    @Test
+    void clientRopeIsInterpolatedWithItsPrediction() {
+        var rope = new RopeModel(1, 1, 0, DELAY);
+        rope.predict();
+        rope.predict();
+        rope.sync(0, 0, 0, 0, 1000);
+        rope.sync(100, 2, 10, 2, 1100); // both presses acked
+
+        // halfway there, one press is in the shown totals and the other is still predicted on top of them
+        assertEquals(5 - (1 + 1), rope.getOffset(1000 + 50 + DELAY), 1e-9);
+        assertEquals(10 - 2, rope.getOffset(1000 + 100 + DELAY), 1e-9);
+    }
+}
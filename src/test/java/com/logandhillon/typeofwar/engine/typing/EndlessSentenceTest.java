@@ -0,0 +1,85 @@
+package com.logandhillon.typeofwar.engine.typing;
+
+import com.logandhillon.typeofwar.resource.WordBank;
+import com.logandhillon.typeofwar.resource.WordGen;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EndlessSentenceTest {
+    private static WordBank words;
+
+    @BeforeAll
+    static void loadWords() throws IOException {
+        words = WordGen.getWordBank(WordGen.DEFAULT_WORD_LIST);
+    }
+
+    @Test
+    void startsWithTheWordsOfAFixedSentence() throws IOException {
+        var endless = new EndlessSentence(words, 42);
+        Sentence fixed = WordGen.generateSentence(WordGen.DEFAULT_WORD_LIST, 42, EndlessSentence.AHEAD);
+
+        assertEquals(Integer.MAX_VALUE, endless.getWordCount());
+        assertSameWords(fixed, endless, 0, EndlessSentence.AHEAD);
+    }
+
+    @Test
+    void holdsTheWordsAroundTheFurthestOneReached() throws IOException {
+        int furthest = 5000;
+        var endless = new EndlessSentence(words, 7);
+        for (int word = 1; word <= furthest; word++) endless.reach(word);
+
+        Sentence fixed = WordGen.generateSentence(WordGen.DEFAULT_WORD_LIST, 7, furthest + EndlessSentence.AHEAD + 1);
+        assertEquals(furthest - EndlessSentence.BEHIND, endless.getFirstWord());
+        assertSameWords(fixed, endless, endless.getFirstWord(), furthest + EndlessSentence.AHEAD + 1);
+    }
+
+    @Test
+    void reachingBackDoesNothing() {
+        var endless = new EndlessSentence(words, 3);
+        endless.reach(1000);
+        int start = endless.getWordStart(1000);
+
+        endless.reach(10);
+        assertEquals(1000 - EndlessSentence.BEHIND, endless.getFirstWord());
+        assertEquals(start, endless.getWordStart(1000));
+    }
+
+    @Test
+    void wordsAreSeparatedBySingleSpaces() {
+        var endless = new EndlessSentence(words, 11);
+        endless.reach(3000);
+
+        for (int word = endless.getFirstWord(); word < 3000 + EndlessSentence.AHEAD; word++) {
+            int end = endless.getWordStart(word) + endless.getWordLength(word);
+            assertEquals(' ', endless.charAt(end));
+            assertEquals(end + 1, endless.getWordStart(word + 1));
+        }
+    }
+
+    @Test
+    void windowsHoldEveryHeldWord() {
+        var endless = new EndlessSentence(words, 0);
+
+        assertEquals(1, Integer.bitCount(endless.getWordWindow()));
+        assertEquals(1, Integer.bitCount(endless.getCharWindow()));
+        assertTrue(endless.getWordWindow() > EndlessSentence.BEHIND + 1 + EndlessSentence.AHEAD);
+
+        int longest = 0;
+        for (int i = 0; i < words.size(); i++) longest = Math.max(longest, words.length(i));
+        assertTrue(endless.getCharWindow() >= endless.getWordWindow() * (longest + 1));
+    }
+
+    private static void assertSameWords(Sentence expected, Sentence actual, int from, int to) {
+        for (int word = from; word < to; word++) {
+            assertEquals(expected.getWordStart(word), actual.getWordStart(word), "start of word " + word);
+            assertEquals(expected.getWordLength(word), actual.getWordLength(word), "length of word " + word);
+            for (int i = expected.getWordStart(word), end = i + expected.getWordLength(word); i < end; i++) {
+                assertEquals(expected.charAt(i), actual.charAt(i), "character " + i);
+            }
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.logandhillon.typeofwar.engine.typing;
+
+import com.logandhillon.typeofwar.resource.WordGen;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+
+import static com.logandhillon.typeofwar.engine.typing.TypingEngine.Result.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TypingEngineTest {
+    @Test
+    void typingEveryWordCompletesTheSession() {
+        var engine = new TypingEngine(Sentence.of("ab cd"));
+
+        for (char c: "ab cd".toCharArray()) assertEquals(CORRECT, engine.type(c));
+        assertTrue(engine.isComplete());
+        assertEquals(5, engine.getTypedChars());
+        assertEquals(5, engine.getCorrectChars());
+        assertEquals(2, engine.getCorrectWords());
+    }
+
+    @Test
+    void keysAfterCompletionAreIgnored() {
+        var engine = new TypingEngine(Sentence.of("a"));
+        engine.type('a');
+
+        assertEquals(IGNORED, engine.type('b'));
+        engine.backspace();
+        assertEquals(1, engine.getTypedChars());
+        assertEquals(1, engine.getTyped(0));
+    }
+
+    @Test
+    void emptySentenceIsAlreadyComplete() {
+        var engine = new TypingEngine(Sentence.of("  "));
+
+        assertTrue(engine.isComplete());
+        assertEquals(IGNORED, engine.type('a'));
+    }
+
+    @Test
+    void wrongKeyIsIncorrect() {
+        var engine = new TypingEngine(Sentence.of("ab"));
+
+        assertEquals(INCORRECT, engine.type('x'));
+        assertFalse(engine.isCorrect(0, 0));
+        assertEquals(CORRECT, engine.type('b'));
+        assertTrue(engine.isCorrect(0, 1));
+
+        assertEquals(2, engine.getTypedChars());
+        assertEquals(1, engine.getCorrectChars());
+        assertEquals(0, engine.getCorrectWords());
+        assertFalse(engine.isComplete());
+    }
+
+    @Test
+    void correctKeyAfterBackspaceOnlyRepaysIt() {
+        var engine = new TypingEngine(Sentence.of("ab"));
+
+        assertEquals(INCORRECT, engine.type('x'));
+        engine.backspace();
+        assertEquals(REPAID, engine.type('a'));
+        assertEquals(0, engine.getCorrectChars());
+
+        assertEquals(CORRECT, engine.type('b'));
+        assertEquals(1, engine.getCorrectChars());
+        assertEquals(3, engine.getTypedChars());
+        assertTrue(engine.isComplete());
+    }
+
+    @Test
+    void deletingAndRetypingCantFarmCorrectKeys() {
+        var engine = new TypingEngine(Sentence.of("abc"));
+        engine.type('a');
+
+        for (int i = 0; i < 10; i++) {
+            engine.backspace();
+            assertEquals(REPAID, engine.type('a'));
+        }
+        assertEquals(1, engine.getCorrectChars());
+        assertEquals(11, engine.getTypedChars());
+    }
+
+    @Test
+    void spaceOnlyCountsAfterTheWholeWord() {
+        var engine = new TypingEngine(Sentence.of("abc de"));
+
+        assertEquals(NONE, engine.type(' ')); // nothing typed yet, stays on the word
+        assertEquals(0, engine.getCurrentWord());
+
+        engine.type('a');
+        assertEquals(NONE, engine.type(' ')); // skips the rest of the word
+        assertEquals(1, engine.getCurrentWord());
+        assertEquals(1, engine.getCorrectChars());
+        assertEquals(3, engine.getTypedChars());
+    }
+
+    @Test
+    void keysPastTheEndOfAWordOverflow() {
+        var engine = new TypingEngine(Sentence.of("ab cd"));
+        engine.type('a');
+        engine.type('b');
+
+        assertEquals(INCORRECT, engine.type('x'));
+        assertEquals(INCORRECT, engine.type('y'));
+        assertEquals(4, engine.getTyped(0));
+        assertEquals('x', engine.getOverflow(0, 0));
+        assertEquals('y', engine.getOverflow(0, 1));
+        assertEquals(0, engine.getCorrectWords());
+
+        // only MAX_OVERFLOW characters are kept, the rest are only counted
+        for (int i = 0; i < 2 * TypingEngine.MAX_OVERFLOW; i++) engine.type('z');
+        assertEquals(2 + TypingEngine.MAX_OVERFLOW, engine.getTyped(0));
+        assertEquals(4 + 2 * TypingEngine.MAX_OVERFLOW, engine.getTypedChars());
+
+        // deleting the overflow makes the word correct again
+        for (int i = 0; i < TypingEngine.MAX_OVERFLOW; i++) engine.backspace();
+        assertEquals(1, engine.getCorrectWords());
+    }
+
+    @Test
+    void backspaceOnEmptyWordGoesBackToThePreviousOne() {
+        var engine = new TypingEngine(Sentence.of("ab cd"));
+        engine.backspace(); // nothing before the first word
+        assertEquals(0, engine.getCurrentWord());
+
+        for (char c: "ab ".toCharArray()) engine.type(c);
+        assertEquals(1, engine.getCurrentWord());
+        assertEquals(1, engine.getCorrectWords());
+
+        engine.backspace();
+        assertEquals(0, engine.getCurrentWord());
+        engine.backspace();
+        assertEquals(1, engine.getTyped(0));
+        assertEquals(0, engine.getCorrectWords());
+    }
+
+    @Test
+    void inputGrowsWithTheWordsThatAreReached() {
+        String text = "word ".repeat(1000).strip();
+        var engine = new TypingEngine(Sentence.of(text));
+
+        for (char c: text.toCharArray()) assertEquals(CORRECT, engine.type(c));
+        assertTrue(engine.isComplete());
+        assertEquals(1000, engine.getCorrectWords());
+        assertEquals(text.length(), engine.getCorrectChars());
+        assertTrue(engine.isCorrect(999, 3));
+    }
+
+    @Test
+    void endlessSessionReusesItsRingBuffers() throws IOException {
+        Sentence target = WordGen.generateSentence(WordGen.DEFAULT_WORD_LIST, 42, WordGen.ENDLESS);
+        var engine = new TypingEngine(target);
+        int words = 3 * target.getWordWindow(); // wraps around the ring buffers a few times
+
+        int chars = 0;
+        for (int word = 0; word < words; word++) {
+            int start = target.getWordStart(word);
+            if (word % 100 == 0) {
+                // a typo in every hundredth word, deleted again right away
+                assertEquals(INCORRECT, engine.type('#'));
+                engine.backspace();
+            }
+            for (int j = 0; j < target.getWordLength(word); j++) {
+                assertEquals(word % 100 == 0 && j == 0 ? REPAID : CORRECT, engine.type(target.charAt(start + j)));
+            }
+            assertEquals(CORRECT, engine.type(' '));
+            chars += target.getWordLength(word) + 1;
+        }
+
+        assertEquals(words, engine.getCurrentWord());
+        assertEquals(words, engine.getCorrectWords());
+        assertEquals(chars - (words + 99) / 100, engine.getCorrectChars()); // a typo in words 0, 100, 200...
+        assertFalse(engine.isComplete());
+
+        // the current word's slot was last used a whole window ago, but starts out empty
+        assertEquals(0, engine.getTyped(words));
+        assertTrue(engine.isCorrect(words - 1, 0));
+    }
+
+    @Test
+    void endlessSessionCantBackspacePastTheHeldWords() throws IOException {
+        Sentence target = WordGen.generateSentence(WordGen.DEFAULT_WORD_LIST, 7, WordGen.ENDLESS);
+        var engine = new TypingEngine(target);
+        int words = EndlessSentence.BEHIND * 2;
+
+        for (int word = 0; word < words; word++) {
+            engine.type('#'); // one wrong character per word, then move on
+            engine.type(' ');
+        }
+        assertEquals(words, engine.getCurrentWord());
+
+        for (int i = 0; i < 10 * words; i++) engine.backspace();
+        assertEquals(target.getFirstWord(), engine.getCurrentWord());
+        assertEquals(words - EndlessSentence.BEHIND, engine.getCurrentWord());
+    }
+
+    @Test
+    void endlessOverflowIsClearedWhenItsSlotIsReused() throws IOException {
+        Sentence target = WordGen.generateSentence(WordGen.DEFAULT_WORD_LIST, 1, WordGen.ENDLESS);
+        var engine = new TypingEngine(target);
+        int window = target.getWordWindow();
+
+        for (int word = 0; word < window; word++) {
+            for (int j = 0; j < target.getWordLength(word) + 3; j++) engine.type('#');
+            engine.type(' ');
+        }
+
+        assertEquals(window, engine.getCurrentWord());
+        assertEquals(0, engine.getTyped(window));
+        engine.type('#');
+        assertEquals(1, engine.getTyped(window));
+        assertFalse(engine.isCorrect(window, 0));
+    }
+}
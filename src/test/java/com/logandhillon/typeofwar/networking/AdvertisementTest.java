@@ -0,0 +1,74 @@
+package com.logandhillon.typeofwar.networking;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdvertisementTest {
+    private static final Advertisement AD = new Advertisement(3, "logan's room", 20670, 2, 1, 8);
+
+    @Test
+    void decodesWhatItEncodes() {
+        byte[] data = AD.encode();
+
+        assertEquals(AD, Advertisement.decode(data, 0, data.length));
+        assertEquals(3, AD.players());
+    }
+
+    @Test
+    void decodesFromTheMiddleOfABuffer() {
+        byte[] data = AD.encode();
+        byte[] buffer = new byte[data.length + 20];
+        System.arraycopy(data, 0, buffer, 7, data.length);
+
+        assertEquals(AD, Advertisement.decode(buffer, 7, data.length));
+    }
+
+    @Test
+    void keepsUnsignedFieldsUnsigned() {
+        var ad = new Advertisement(255, "", 65535, 255, 0, 200);
+        byte[] data = ad.encode();
+
+        assertEquals(ad, Advertisement.decode(data, 0, data.length));
+    }
+
+    @Test
+    void cutsLongRoomNamesOff() {
+        var ad = new Advertisement(1, "x".repeat(100), 1, 1, 0, 2);
+        byte[] data = ad.encode();
+
+        assertEquals("x".repeat(64), Advertisement.decode(data, 0, data.length).room());
+    }
+
+    @Test
+    void neverCutsACharacterInHalf() {
+        var ad = new Advertisement(1, "x" + "é".repeat(40), 1, 1, 0, 2); // 81 bytes, byte 64 is half of an é
+        byte[] data = ad.encode();
+
+        String room = Advertisement.decode(data, 0, data.length).room();
+        assertEquals("x" + "é".repeat(31), room);
+        assertTrue(room.getBytes(StandardCharsets.UTF_8).length <= 64);
+    }
+
+    @Test
+    void truncatedDatagramIsNotAnAdvertisement() {
+        byte[] data = AD.encode();
+        for (int length = 0; length < data.length; length++) {
+            assertNull(Advertisement.decode(data, 0, length), "cut to " + length + " bytes");
+        }
+    }
+
+    @Test
+    void otherDatagramsAreNotAdvertisements() {
+        byte[] legacy = "TypeOfWarServer:logan's room:20670".getBytes(StandardCharsets.UTF_8);
+        assertNull(Advertisement.decode(legacy, 0, legacy.length));
+
+        byte[] data = AD.encode();
+        byte[] badMagic = Arrays.copyOf(data, data.length);
+        badMagic[0] = 'X';
+        assertNull(Advertisement.decode(badMagic, 0, badMagic.length));
+    }
+}
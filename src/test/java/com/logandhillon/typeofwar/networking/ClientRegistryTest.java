@@ -0,0 +1,120 @@
+package com.logandhillon.typeofwar.networking;
+
+import com.logandhillon.typeofwar.networking.proto.PlayerProto;
+import javafx.scene.paint.Color;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ClientRegistryTest {
+    private static final PlayerProto.PlayerData HOST =
+            PlayerProto.PlayerData.newBuilder().setName("host").setTeam(1).build();
+
+    private final ClientRegistry registry = new ClientRegistry(HOST);
+
+    @Test
+    void startsWithOnlyTheHost() {
+        var snapshot = registry.snapshot();
+
+        assertEquals(0, snapshot.version());
+        assertEquals(0, snapshot.size());
+        assertEquals(List.of(HOST), snapshot.team(1));
+        assertEquals(List.of(), snapshot.team(2));
+        assertTrue(registry.isNameTaken("host"));
+        assertNull(registry.get("host"));
+    }
+
+    @Test
+    void registeringPublishesANewSnapshot() {
+        var session = registry.register(null, "alice", Color.RED, 2);
+        var snapshot = registry.snapshot();
+
+        assertEquals(1, snapshot.version());
+        assertEquals(List.of(session), snapshot.sessions());
+        assertEquals(List.of(HOST), snapshot.team1());
+        assertEquals(List.of(session.data()), snapshot.team2());
+        assertSame(session, registry.get("alice"));
+
+        assertEquals("alice", session.data().getName());
+        assertEquals(2, session.data().getTeam());
+        assertEquals(1f, session.data().getR());
+        assertEquals(0f, session.data().getG());
+    }
+
+    @Test
+    void snapshotsNeverChange() {
+        var before = registry.snapshot();
+        var session = registry.register(null, "alice", Color.RED, 1);
+        var during = registry.snapshot();
+        registry.remove(session);
+
+        assertEquals(0, before.size());
+        assertEquals(List.of(HOST), before.team1());
+        assertEquals(List.of(session), during.sessions());
+        assertEquals(List.of(HOST, session.data()), during.team1());
+        assertThrows(UnsupportedOperationException.class, () -> during.sessions().clear());
+        assertThrows(UnsupportedOperationException.class, () -> during.team1().add(HOST));
+    }
+
+    @Test
+    void takenNamesAreRefused() {
+        registry.register(null, "alice", Color.RED, 1);
+
+        assertThrows(IllegalStateException.class, () -> registry.register(null, "alice", Color.BLUE, 2));
+        assertThrows(IllegalStateException.class, () -> registry.register(null, "host", Color.BLUE, 2));
+        assertEquals(1, registry.snapshot().version());
+    }
+
+    @Test
+    void sessionsAreOnlyRemovedOnce() {
+        var session = registry.register(null, "alice", Color.RED, 2);
+
+        assertTrue(registry.remove(session));
+        assertFalse(registry.remove(session));
+        assertEquals(2, registry.snapshot().version());
+        assertEquals(List.of(), registry.snapshot().team2());
+        assertFalse(registry.isNameTaken("alice"));
+
+        // the name is free again, but the new session is a different one
+        var again = registry.register(null, "alice", Color.RED, 2);
+        assertNotEquals(session.id(), again.id());
+        assertFalse(registry.remove(session));
+        assertSame(again, registry.get("alice"));
+    }
+
+    @Test
+    void onlyHasTwoTeams() {
+        assertThrows(IllegalArgumentException.class, () -> registry.snapshot().team(3));
+    }
+
+    @Test
+    void registersFromManyThreads() throws InterruptedException {
+        int threads = 8;
+        int perThread = 50;
+
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) registry.register(null, thread + "-" + i, Color.GRAY, i % 2 + 1);
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        for (Thread t: workers) t.join();
+
+        var snapshot = registry.snapshot();
+        assertEquals(threads * perThread, snapshot.version());
+        assertEquals(threads * perThread, snapshot.size());
+        assertEquals(1 + threads * perThread / 2, snapshot.team1().size());
+        assertEquals(threads * perThread / 2, snapshot.team2().size());
+
+        Set<Integer> ids = new HashSet<>();
+        for (var session: snapshot.sessions()) assertTrue(ids.add(session.id()));
+    }
+}
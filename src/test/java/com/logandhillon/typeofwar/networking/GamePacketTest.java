@@ -0,0 +1,37 @@
+package com.logandhillon.typeofwar.networking;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GamePacketTest {
+    @Test
+    void fixedLayoutsMustBeExactlyTheirLength() {
+        assertTrue(GamePacket.Type.CLT_KEY_PRESS.hasValidLength(9));
+        assertFalse(GamePacket.Type.CLT_KEY_PRESS.hasValidLength(8));
+        assertFalse(GamePacket.Type.CLT_KEY_PRESS.hasValidLength(0));
+
+        assertTrue(GamePacket.Type.SRV_ROPE_SNAPSHOT.hasValidLength(32));
+        assertFalse(GamePacket.Type.SRV_ROPE_SNAPSHOT.hasValidLength(33));
+
+        assertTrue(GamePacket.Type.SRV_PING.hasValidLength(24));
+        assertFalse(GamePacket.Type.SRV_PING.hasValidLength(16));
+        assertTrue(GamePacket.Type.CLT_PONG.hasValidLength(24));
+        assertFalse(GamePacket.Type.CLT_PONG.hasValidLength(23));
+    }
+
+    @Test
+    void otherTypesAreCheckedWhenParsed() {
+        assertTrue(GamePacket.Type.CLT_REQ_CONN.hasValidLength(0));
+        assertTrue(GamePacket.Type.SRV_UPDATE_PLAYERLIST.hasValidLength(12345));
+    }
+
+    @Test
+    void encodesTheFrameHeader() {
+        var frame = new GamePacket(GamePacket.Type.CLT_KEY_PRESS, new byte[9]).encode();
+
+        assertEquals(PacketFrame.HEADER_LENGTH + 9, frame.length());
+        assertEquals(1 + 9, frame.buffer().getInt(0));
+        assertEquals(GamePacket.Type.CLT_KEY_PRESS.ordinal(), frame.buffer().get(4));
+    }
+}
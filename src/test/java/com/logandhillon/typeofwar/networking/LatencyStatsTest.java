@@ -0,0 +1,76 @@
+package com.logandhillon.typeofwar.networking;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyStatsTest {
+    private static final long MS = 1_000_000;
+
+    private final LatencyStats stats = new LatencyStats();
+
+    @Test
+    void hasNothingWithoutSamples() {
+        assertEquals(0, stats.getSamples());
+        assertEquals(-1, stats.getRoundTrip(0.5));
+        assertEquals(0, stats.getClockOffset());
+    }
+
+    @Test
+    void leavesOutTheTimeTheClientTookToAnswer() {
+        // the client's clock is 1000 ahead, the ping takes 10 each way and the client answers after 5
+        stats.add(0, 1010, 1015, 25);
+
+        assertEquals(1, stats.getSamples());
+        assertEquals(20, stats.getRoundTrip(0.5));
+        assertEquals(1000, stats.getClockOffset());
+    }
+
+    @Test
+    void roundTripIsNeverNegative() {
+        stats.add(0, 0, 50, 10);
+        assertEquals(0, stats.getRoundTrip(1));
+    }
+
+    @Test
+    void picksPercentilesOfTheSamples() {
+        for (int rtt = 10; rtt >= 1; rtt--) stats.add(0, 0, 0, rtt);
+
+        assertEquals(1, stats.getRoundTrip(0));
+        assertEquals(5, stats.getRoundTrip(0.5));
+        assertEquals(9, stats.getRoundTrip(0.9));
+        assertEquals(10, stats.getRoundTrip(1));
+    }
+
+    @Test
+    void onlyHoldsTheLatestSamples() {
+        stats.add(0, 0, 0, 1); // quickest, but pushed out by the samples after it
+        for (int i = 0; i < 40; i++) stats.add(0, 500, 500, 100);
+
+        assertEquals(32, stats.getSamples());
+        assertEquals(100, stats.getRoundTrip(0));
+        assertEquals(450, stats.getClockOffset());
+    }
+
+    @Test
+    void estimatesClockSkewThroughJitter() {
+        long skew = 5_000 * MS; // the client's clock is 5 s ahead
+        var rand = new SplittableRandom(42);
+
+        long now = 0;
+        for (int i = 0; i < 32; i++, now += 1_000 * MS) {
+            long there = 10 * MS + rand.nextLong(30 * MS); // 10-40 ms each way, independently
+            long back = 10 * MS + rand.nextLong(30 * MS);
+            long answer = rand.nextLong(2 * MS);
+
+            long received = now + there + skew;
+            stats.add(now, received, received + answer, now + there + answer + back);
+        }
+
+        // the quickest exchange has the least room for one way to take longer than the other
+        assertEquals(skew, stats.getClockOffset(), 5 * MS);
+        assertTrue(stats.getRoundTrip(0.5) >= 20 * MS && stats.getRoundTrip(0.5) <= 80 * MS);
+    }
+}
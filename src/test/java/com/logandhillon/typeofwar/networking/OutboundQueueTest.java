@@ -0,0 +1,105 @@
+package com.logandhillon.typeofwar.networking;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OutboundQueueTest {
+    @Test
+    void pollsInOrder() {
+        var queue = new OutboundQueue<String>(4, OutboundQueue.OverflowPolicy.DISCONNECT);
+        assertTrue(queue.offer("a", false));
+        assertTrue(queue.offer("b", true));
+        assertTrue(queue.offer("c", false));
+
+        assertEquals("a", queue.poll());
+        assertEquals("b", queue.poll());
+        assertEquals("c", queue.poll());
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+        assertEquals(3, queue.getSent());
+    }
+
+    @Test
+    void dropOldestDropsTheOldestDroppableMessage() {
+        var queue = new OutboundQueue<String>(3, OutboundQueue.OverflowPolicy.DROP_OLDEST);
+        queue.offer("control", false);
+        queue.offer("snapshot 1", true);
+        queue.offer("snapshot 2", true);
+
+        assertTrue(queue.offer("snapshot 3", true));
+        assertEquals(1, queue.getDropped());
+        assertEquals(3, queue.getDepth());
+
+        assertEquals("control", queue.poll());
+        assertEquals("snapshot 2", queue.poll());
+        assertEquals("snapshot 3", queue.poll());
+    }
+
+    @Test
+    void dropOldestOverflowsWhenNothingCanBeDropped() {
+        var queue = new OutboundQueue<String>(2, OutboundQueue.OverflowPolicy.DROP_OLDEST);
+        queue.offer("a", false);
+        queue.offer("b", false);
+
+        assertFalse(queue.offer("c", true));
+        assertEquals(0, queue.getDropped());
+        assertEquals(2, queue.getDepth());
+    }
+
+    @Test
+    void disconnectNeverDrops() {
+        var queue = new OutboundQueue<String>(2, OutboundQueue.OverflowPolicy.DISCONNECT);
+        queue.offer("a", true);
+        queue.offer("b", true);
+
+        assertFalse(queue.offer("c", true));
+        assertEquals(0, queue.getDropped());
+        assertEquals("a", queue.poll());
+    }
+
+    @Test
+    void highWaterKeepsTheDeepestDepth() {
+        var queue = new OutboundQueue<Integer>(8, OutboundQueue.OverflowPolicy.DISCONNECT);
+        for (int i = 0; i < 5; i++) queue.offer(i, false);
+        while (queue.poll() != null) ;
+        queue.offer(5, false);
+
+        assertEquals(1, queue.getDepth());
+        assertEquals(5, queue.getHighWater());
+    }
+
+    @Test
+    void closeDiscardsAndRefuses() {
+        var queue = new OutboundQueue<String>(2, OutboundQueue.OverflowPolicy.DROP_OLDEST);
+        queue.offer("a", false);
+        queue.close();
+
+        assertTrue(queue.isEmpty());
+        assertFalse(queue.offer("b", false));
+    }
+
+    @Test
+    void closeWakesBlockedWriter() throws InterruptedException {
+        var queue = new OutboundQueue<String>(2, OutboundQueue.OverflowPolicy.DISCONNECT);
+        String[] taken = { "not yet" };
+        Thread writer = new Thread(() -> {
+            try {
+                taken[0] = queue.take();
+            } catch (InterruptedException ignored) {
+            }
+        });
+        writer.start();
+
+        queue.close();
+        writer.join(5000);
+        assertFalse(writer.isAlive());
+        assertNull(taken[0]);
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThrows(IllegalArgumentException.class,
+                     () -> new OutboundQueue<String>(0, OutboundQueue.OverflowPolicy.DISCONNECT));
+    }
+}
@@ -0,0 +1,172 @@
+package com.logandhillon.typeofwar.networking;
+
+import com.logandhillon.typeofwar.networking.proto.PlayerProto;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PacketReaderTest {
+    private final PacketReader     reader   = new PacketReader(new BufferPool());
+    private final List<GamePacket> received = new ArrayList<>();
+
+    @Test
+    void readsFrameSplitAcrossReads() throws Exception {
+        byte[] frame = frame(GamePacket.Type.CLT_PONG, new byte[24]);
+        var channel = new ChunkedChannel(Arrays.copyOfRange(frame, 0, 2), Arrays.copyOfRange(frame, 2, 10),
+                                         Arrays.copyOfRange(frame, 10, frame.length));
+
+        assertTrue(reader.read(channel, this::receive));
+        assertTrue(reader.read(channel, this::receive));
+        assertTrue(received.isEmpty());
+
+        assertTrue(reader.read(channel, this::receive));
+        assertEquals(1, received.size());
+        assertEquals(GamePacket.Type.CLT_PONG, received.getFirst().type());
+        assertEquals(24, received.getFirst().payload().length);
+    }
+
+    @Test
+    void readsEveryFrameInOneRead() throws Exception {
+        var channel = new ChunkedChannel(concat(frame(GamePacket.Type.SRV_GAME_STARTING, new byte[0]),
+                                                frame(GamePacket.Type.CLT_KEY_PRESS, new byte[9]),
+                                                frame(GamePacket.Type.SRV_PING, new byte[24])));
+
+        assertTrue(reader.read(channel, this::receive));
+        assertEquals(List.of(GamePacket.Type.SRV_GAME_STARTING, GamePacket.Type.CLT_KEY_PRESS,
+                             GamePacket.Type.SRV_PING), received.stream().map(GamePacket::type).toList());
+    }
+
+    @Test
+    void keepsPartialFrameForTheNextRead() throws Exception {
+        byte[] first = frame(GamePacket.Type.SRV_PING, new byte[24]);
+        byte[] second = frame(GamePacket.Type.CLT_PONG, new byte[24]);
+        byte[] both = concat(first, second);
+        var channel = new ChunkedChannel(Arrays.copyOfRange(both, 0, first.length + 3),
+                                         Arrays.copyOfRange(both, first.length + 3, both.length));
+
+        assertTrue(reader.read(channel, this::receive));
+        assertEquals(1, received.size());
+        assertTrue(reader.read(channel, this::receive));
+        assertEquals(GamePacket.Type.CLT_PONG, received.get(1).type());
+    }
+
+    @Test
+    void viewReadsStraightOutOfThePayload() throws Exception {
+        byte[] payload = ByteBuffer.allocate(9).putLong(42).put((byte)1).array();
+        var channel = new ChunkedChannel(frame(GamePacket.Type.CLT_KEY_PRESS, payload));
+
+        long[] sequence = new long[1];
+        byte[] receiving = new byte[1];
+        assertTrue(reader.read(channel, packet -> {
+            sequence[0] = packet.getLong(0);
+            receiving[0] = packet.getByte(8);
+            assertThrows(IndexOutOfBoundsException.class, () -> packet.getLong(2));
+        }));
+        assertEquals(42, sequence[0]);
+        assertEquals(1, receiving[0]);
+    }
+
+    @Test
+    void parsesProtobufPayload() throws Exception {
+        var player = PlayerProto.PlayerData.newBuilder().setName("logan").setTeam(2).build();
+        var channel = new ChunkedChannel(frame(GamePacket.Type.CLT_REQ_CONN, player.toByteArray()));
+
+        List<PlayerProto.PlayerData> parsed = new ArrayList<>();
+        assertTrue(reader.read(channel, packet -> parsed.add(packet.parse(PlayerProto.PlayerData.parser()))));
+        assertEquals(List.of(player), parsed);
+    }
+
+    @Test
+    void growsForFramesBiggerThanTheBuffer() throws Exception {
+        byte[] payload = new byte[3 * BufferPool.MIN_CAPACITY];
+        Arrays.fill(payload, (byte)7);
+        var channel = new ChunkedChannel(frame(GamePacket.Type.SRV_UPDATE_PLAYERLIST, payload));
+
+        while (received.isEmpty()) assertTrue(reader.read(channel, this::receive));
+        assertArrayEquals(payload, received.getFirst().payload());
+    }
+
+    @Test
+    void skipsUnknownType() throws Exception {
+        byte[] unknown = { 0, 0, 0, 3, 127, 1, 2 };
+        var channel = new ChunkedChannel(concat(unknown, frame(GamePacket.Type.SRV_GAME_STARTING, new byte[0])));
+
+        assertTrue(reader.read(channel, this::receive));
+        assertEquals(1, received.size());
+        assertEquals(GamePacket.Type.SRV_GAME_STARTING, received.getFirst().type());
+    }
+
+    @Test
+    void rejectsInvalidLength() throws Exception {
+        assertFalse(reader.read(new ChunkedChannel(new byte[]{ 0, 0, 0, 0, 1 }), this::receive));
+
+        var tooLong = new PacketReader(new BufferPool());
+        byte[] header = ByteBuffer.allocate(5).putInt(PacketReader.MAX_FRAME_LENGTH + 1).array();
+        assertFalse(tooLong.read(new ChunkedChannel(header), this::receive));
+        assertTrue(received.isEmpty());
+    }
+
+    @Test
+    void returnsFalseAtEndOfStreamOrOnceClosed() throws Exception {
+        assertFalse(reader.read(new ChunkedChannel(), this::receive));
+
+        reader.close();
+        assertFalse(reader.read(new ChunkedChannel(frame(GamePacket.Type.SRV_PING, new byte[24])), this::receive));
+        assertTrue(received.isEmpty());
+    }
+
+    private void receive(PacketView packet) {
+        received.add(packet.copy());
+    }
+
+    private static byte[] frame(GamePacket.Type type, byte[] payload) {
+        ByteBuffer buf = new GamePacket(type, payload).encode().buffer();
+        byte[] bytes = new byte[buf.remaining()];
+        buf.get(bytes);
+        return bytes;
+    }
+
+    private static byte[] concat(byte[]... arrays) {
+        ByteBuffer buf = ByteBuffer.allocate(Arrays.stream(arrays).mapToInt(a -> a.length).sum());
+        for (byte[] a: arrays) buf.put(a);
+        return buf.array();
+    }
+
+    /**
+     * A channel that hands out one chunk per read (or as much of it as fits), then reaches the end of the stream.
+     */
+    private static final class ChunkedChannel implements ReadableByteChannel {
+        private final ArrayDeque<ByteBuffer> chunks = new ArrayDeque<>();
+
+        private ChunkedChannel(byte[]... chunks) {
+            for (byte[] chunk: chunks) this.chunks.add(ByteBuffer.wrap(chunk));
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            ByteBuffer chunk = chunks.peek();
+            if (chunk == null) return -1;
+
+            int n = Math.min(chunk.remaining(), dst.remaining());
+            dst.put(dst.position(), chunk, chunk.position(), n).position(dst.position() + n);
+            chunk.position(chunk.position() + n);
+            if (!chunk.hasRemaining()) chunks.poll();
+            return n;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {}
+    }
+}